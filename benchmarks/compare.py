@@ -0,0 +1,68 @@
+#!/usr/bin/env python3
+"""Compares two JMH JSON result files and fails when a benchmark regressed.
+
+A benchmark regresses when its score, or its normalized allocation rate when run with the GC profiler, is worse
+than the baseline by more than the threshold. Benchmarks present in only one of the files are reported and ignored.
+"""
+import argparse
+import json
+import sys
+
+ALLOCATION = "·gc.alloc.rate.norm"
+
+
+def key(result):
+    params = ",".join(f"{name}={value}" for name, value in sorted(result.get("params", {}).items()))
+    return f"{result['benchmark']}({params})" if params else result["benchmark"]
+
+
+def load(path):
+    with open(path) as file:
+        return {key(result): result for result in json.load(file)}
+
+
+def change(baseline, current, higher_is_better):
+    if baseline == 0:
+        return 0.0
+    relative = (current - baseline) / baseline
+    return -relative if higher_is_better else relative
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__)
+    parser.add_argument("baseline")
+    parser.add_argument("current")
+    parser.add_argument("--threshold", type=float, default=10.0, help="allowed regression in percent")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    current = load(args.current)
+    regressions = []
+
+    for name in sorted(baseline.keys() | current.keys()):
+        if name not in baseline or name not in current:
+            print(f"{name}: only in {'current' if name in current else 'baseline'}")
+            continue
+        metrics = [("score", baseline[name]["primaryMetric"], current[name]["primaryMetric"],
+                    baseline[name]["mode"] == "thrpt")]
+        if ALLOCATION in baseline[name].get("secondaryMetrics", {}) \
+                and ALLOCATION in current[name].get("secondaryMetrics", {}):
+            metrics.append(("alloc", baseline[name]["secondaryMetrics"][ALLOCATION],
+                            current[name]["secondaryMetrics"][ALLOCATION], False))
+        for metric, old, new, higher_is_better in metrics:
+            worse = change(old["score"], new["score"], higher_is_better) * 100
+            line = (f"{name} {metric}: {old['score']:.3f} -> {new['score']:.3f} {new['scoreUnit']} "
+                    f"({worse:+.1f}% worse)")
+            print(line)
+            if worse > args.threshold:
+                regressions.append(line)
+
+    if regressions:
+        print(f"\n{len(regressions)} regression(s) above {args.threshold}%:", file=sys.stderr)
+        for line in regressions:
+            print(f"  {line}", file=sys.stderr)
+        sys.exit(1)
+
+
+if __name__ == "__main__":
+    main()
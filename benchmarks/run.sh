@@ -0,0 +1,14 @@
+#!/usr/bin/env bash
+#
+# Runs the benchmarks with the GC profiler and compares the results with the stored baseline, if any.
+# Arguments are passed to JMH, e.g. a benchmark name regexp: ./run.sh ScmInfoBenchmark
+#
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+java -jar target/benchmarks.jar -prof gc -rf json -rff target/jmh-result.json "$@"
+
+if [ -f baseline/jmh-result.json ]; then
+    python3 compare.py baseline/jmh-result.json target/jmh-result.json
+fi
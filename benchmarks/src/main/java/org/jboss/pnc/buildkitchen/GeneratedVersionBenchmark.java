@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.jboss.pnc.dto.Artifact;
+import org.jboss.pnc.restclient.util.ArtifactUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Detection of the version generated by a build from its built artifacts, compared with parsing the Maven coordinates
+ * of every artifact, as the importer used to.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratedVersionBenchmark {
+
+    @Param({ "10", "1000" })
+    int artifacts;
+
+    /**
+     * Whether all the artifacts have the same version, or every other artifact has a different one.
+     */
+    @Param({ "true", "false" })
+    boolean sameVersion;
+
+    private List<Artifact> builtArtifacts;
+
+    @Setup
+    public void createArtifacts() {
+        builtArtifacts = new ArrayList<>(artifacts);
+        for (int i = 0; i < artifacts; i++) {
+            String version = sameVersion || i % 2 == 0 ? "1.2.3.redhat-00001" : "1.2.4.redhat-00001";
+            builtArtifacts.add(
+                    Artifact.builder()
+                            .identifier("org.example:module-" + i + ":jar:" + version)
+                            .purl("pkg:maven/org.example/module-" + i + "@" + version + "?type=jar")
+                            .sha256(String.format("%064x", i))
+                            .build());
+        }
+    }
+
+    @Benchmark
+    public Optional<String> generatedVersion() {
+        GeneratedVersion generatedVersion = new GeneratedVersion();
+        for (Artifact artifact : builtArtifacts) {
+            generatedVersion.add(artifact.getPurl());
+        }
+        return generatedVersion.get();
+    }
+
+    @Benchmark
+    public Optional<String> parsedCoordinates() {
+        Set<String> versions = builtArtifacts.stream()
+                .map(ArtifactUtil::parseMavenCoordinates)
+                .map(SimpleProjectVersionRef::getVersionString)
+                .collect(Collectors.toSet());
+        return versions.size() == 1 ? Optional.of(versions.iterator().next()) : Optional.empty();
+    }
+}
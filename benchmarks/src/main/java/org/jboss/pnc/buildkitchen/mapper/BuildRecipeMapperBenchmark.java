@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.mapper;
+
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.model.BuildRecipe;
+import org.jboss.pnc.buildkitchen.model.BuildTool;
+import org.jboss.pnc.buildkitchen.model.ScmInfo;
+import org.jboss.pnc.buildkitchen.model.TextBlob;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a recipe to the DTO returned by the lookup endpoints. The mappers are instantiated without CDI, the
+ * generated implementations of the mappers they use are injected into their fields by reflection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuildRecipeMapperBenchmark {
+
+    private BuildRecipeMapper mapper;
+
+    private BuildRecipe recipe;
+
+    @Setup
+    public void createRecipe() throws ReflectiveOperationException {
+        mapper = instantiate(BuildRecipeMapper.class);
+
+        recipe = new BuildRecipe();
+        recipe.id = 1L;
+        recipe.scmInfo = new ScmInfo(
+                "https://github.com/project-ncl/build-kitchen.git",
+                "0123456789abcdef0123456789abcdef01234567",
+                "https://github.com/project-ncl/build-kitchen.git",
+                "0123456789abcdef0123456789abcdef01234567",
+                "main");
+        recipe.scmInfo.id = 1L;
+        recipe.buildTools.add(buildTool(1L, "jdk", "17"));
+        recipe.buildTools.add(buildTool(2L, "maven", "3.9.6"));
+        recipe.memoryRequired = 4096;
+
+        TextBlob buildScript = new TextBlob();
+        buildScript.content = "mvn clean deploy -DskipTests".getBytes(StandardCharsets.UTF_8);
+        buildScript.deflated = false;
+        recipe.buildScript = buildScript;
+    }
+
+    @Benchmark
+    public BuildRecipeDTO toResource() {
+        return mapper.toResource(recipe);
+    }
+
+    private static BuildTool buildTool(long id, String identifier, String version) {
+        BuildTool buildTool = new BuildTool();
+        buildTool.id = id;
+        buildTool.identifier = identifier;
+        buildTool.version = version;
+        return buildTool;
+    }
+
+    private static <T> T instantiate(Class<T> mapperType) throws ReflectiveOperationException {
+        Object mapper = Class.forName(mapperType.getName() + "Impl").getDeclaredConstructor().newInstance();
+        for (Field field : mapper.getClass().getDeclaredFields()) {
+            if (field.getType().getSimpleName().endsWith("Mapper")) {
+                field.setAccessible(true);
+                field.set(mapper, instantiate(field.getType()));
+            }
+        }
+        return mapperType.cast(mapper);
+    }
+}
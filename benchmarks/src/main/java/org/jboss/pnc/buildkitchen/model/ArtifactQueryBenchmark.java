@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import org.jboss.pnc.buildkitchen.api.PurlSha;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction of the array parameters of the artifact queries, see {@link Artifact#findByPurls(Set)} and
+ * {@link Artifact#getOrCreate(Set)}. The database round-trip is not included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArtifactQueryBenchmark {
+
+    @Param({ "100", "10000", "50000" })
+    int artifacts;
+
+    private Set<PurlSha> purls;
+
+    @Setup
+    public void createPurls() {
+        purls = new HashSet<>();
+        for (int i = 0; i < artifacts; i++) {
+            purls.add(
+                    new PurlSha(
+                            "pkg:maven/org.example/module-" + i + "@1.2.3.redhat-00001?type=jar",
+                            String.format("%064x", i)));
+        }
+    }
+
+    @Benchmark
+    public void findParameters(Blackhole blackhole) {
+        Artifact.forEachChunk(purls, chunk -> {
+            blackhole.consume(Artifact.column(chunk, PurlSha::purl));
+            blackhole.consume(Artifact.column(chunk, PurlSha::sha256));
+        });
+    }
+
+    @Benchmark
+    public void insertParameters(Blackhole blackhole) {
+        Artifact.forEachChunk(purls, chunk -> {
+            List<PurlComponents> components = chunk.stream()
+                    .map(purlSha -> PurlComponents.parse(purlSha.purl()))
+                    .toList();
+            blackhole.consume(Artifact.column(chunk, PurlSha::purl));
+            blackhole.consume(Artifact.column(chunk, PurlSha::sha256));
+            blackhole.consume(Artifact.column(components, PurlComponents::type));
+            blackhole.consume(Artifact.column(components, PurlComponents::namespace));
+            blackhole.consume(Artifact.column(components, PurlComponents::name));
+            blackhole.consume(Artifact.column(components, PurlComponents::version));
+            blackhole.consume(Artifact.column(components, PurlComponents::versionKey));
+            blackhole.consume(Artifact.column(components, PurlComponents::qualifiers));
+        });
+    }
+}
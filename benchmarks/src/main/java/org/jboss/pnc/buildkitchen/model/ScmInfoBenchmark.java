@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import org.jboss.pnc.common.util.StringUtils;
+import org.jboss.pnc.common.util.UrlUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalization of SCM URLs, done for each imported build and each lookup by SCM. Compares the memoized
+ * {@link ScmInfo#normalizeUrl(String)}, the canonicalization behind it and the previous normalization with the PNC
+ * URL utilities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScmInfoBenchmark {
+
+    @Param({
+            "https://github.com/project-ncl/build-kitchen.git",
+            "git+ssh://code.example.com:29418/project-ncl/build-kitchen.git",
+            "git@github.com:project-ncl/build-kitchen.git",
+            "http://Internal.Example.com/gerrit/project-ncl/build-kitchen/" })
+    String url;
+
+    @Benchmark
+    public String normalizeUrl() {
+        return ScmInfo.normalizeUrl(url);
+    }
+
+    @Benchmark
+    public String canonicalize() {
+        return ScmUrls.canonicalize(url);
+    }
+
+    @Benchmark
+    public String urlUtils() {
+        return StringUtils.stripSuffix(UrlUtils.keepHostAndPathOnly(url), ".git");
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.umb;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.BuildToolDTO;
+import org.jboss.pnc.buildkitchen.api.ScmInfoDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialization of the UMB build messages and of the recipes returned by the lookup endpoints. The object
+ * mapper is configured like the Quarkus default one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private static final TypeReference<List<BuildRecipeDTO>> RECIPES = new TypeReference<>() {
+    };
+
+    @Param({ "1", "100" })
+    int recipes;
+
+    private ObjectMapper objectMapper;
+
+    private byte[] message;
+
+    private List<BuildRecipeDTO> recipeList;
+
+    private byte[] recipeJson;
+
+    @Setup
+    public void prepare() throws IOException {
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        try (InputStream stream = JsonBenchmark.class.getResourceAsStream("/build-status-changed.json")) {
+            message = stream.readAllBytes();
+        }
+
+        recipeList = new ArrayList<>(recipes);
+        for (int i = 0; i < recipes; i++) {
+            recipeList.add(
+                    BuildRecipeDTO.builder()
+                            .id((long) i)
+                            .scmInfo(
+                                    ScmInfoDTO.builder()
+                                            .id((long) i)
+                                            .buildScmUrl("https://github.com/project-ncl/module-" + i + ".git")
+                                            .buildCommitId(String.format("%040x", i))
+                                            .originScmUrl("https://github.com/project-ncl/module-" + i + ".git")
+                                            .originCommitId(String.format("%040x", i))
+                                            .originRevision("main")
+                                            .build())
+                            .buildTools(
+                                    Set.of(
+                                            BuildToolDTO.builder().identifier("jdk").version("17").build(),
+                                            BuildToolDTO.builder().identifier("maven").version("3.9.6").build()))
+                            .buildScript("mvn clean deploy -DskipTests")
+                            .build());
+        }
+        recipeJson = objectMapper.writeValueAsBytes(recipeList);
+    }
+
+    @Benchmark
+    public BuildStatusChanged readBuildStatusChanged() throws IOException {
+        return objectMapper.readValue(message, BuildStatusChanged.class);
+    }
+
+    @Benchmark
+    public byte[] writeRecipes() throws IOException {
+        return objectMapper.writeValueAsBytes(recipeList);
+    }
+
+    @Benchmark
+    public List<BuildRecipeDTO> readRecipes() throws IOException {
+        return objectMapper.readValue(recipeJson, RECIPES);
+    }
+}
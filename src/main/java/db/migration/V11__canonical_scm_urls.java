@@ -0,0 +1,293 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Rewrites the SCM URLs stored before they were canonicalized to the {@code host/path} form of
+ * {@code ScmInfo.normalizeUrl}. The migration keeps its own copy of the canonicalization as it was when the migration
+ * was written, so that it migrates every database the same way whatever the application code does later.
+ * <p>
+ * SCM information that becomes equal to an older one is merged into it: its recipes are moved to the older SCM
+ * information and their content hash is reset, so that {@code RecipeCompaction} merges them with the equal recipes.
+ * The {@code ScmKey} rows of the rewritten SCM information are recreated, the revisions of the merged ones are kept as
+ * keys of the SCM information they were merged into.
+ */
+public class V11__canonical_scm_urls extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private record Rewrite(long id, String buildScmUrl, String originScmUrl) {
+    }
+
+    private record Merge(long id, long keptId, List<String> urls, List<String> revisions) {
+    }
+
+    private record Key(String url, String revision, long scmInfoId) {
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        List<Rewrite> rewrites = new ArrayList<>();
+        List<Merge> merges = new ArrayList<>();
+        Map<List<String>, Long> keptIds = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement("""
+                SELECT id, buildScmUrl, buildCommitId, originScmUrl, originCommitId, originRevision
+                FROM ScmInfo
+                ORDER BY id
+                """)) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    long id = rs.getLong("id");
+                    String buildScmUrl = rs.getString("buildScmUrl");
+                    String buildCommitId = rs.getString("buildCommitId");
+                    String originScmUrl = rs.getString("originScmUrl");
+                    String originCommitId = rs.getString("originCommitId");
+                    String canonicalBuildScmUrl = canonicalize(buildScmUrl);
+                    String canonicalOriginScmUrl = canonicalize(originScmUrl);
+
+                    List<String> naturalKey = Arrays
+                            .asList(canonicalBuildScmUrl, buildCommitId, canonicalOriginScmUrl, originCommitId);
+                    Long keptId = keptIds.putIfAbsent(naturalKey, id);
+                    if (keptId != null) {
+                        merges.add(
+                                new Merge(
+                                        id,
+                                        keptId,
+                                        List.of(canonicalBuildScmUrl, canonicalOriginScmUrl),
+                                        Arrays.asList(buildCommitId, originCommitId, rs.getString("originRevision"))));
+                    } else if (!Objects.equals(canonicalBuildScmUrl, buildScmUrl)
+                            || !Objects.equals(canonicalOriginScmUrl, originScmUrl)) {
+                        rewrites.add(new Rewrite(id, canonicalBuildScmUrl, canonicalOriginScmUrl));
+                    }
+                }
+            }
+        }
+        if (rewrites.isEmpty() && merges.isEmpty()) {
+            return;
+        }
+
+        // merged rows are removed before the kept ones are rewritten, they may already hold the canonical URLs
+        try (PreparedStatement moveRecipes = connection.prepareStatement("""
+                UPDATE BuildRecipe
+                SET scmInfo_id = ?, contentHash = NULL
+                WHERE scmInfo_id = ?
+                """)) {
+            executeBatches(moveRecipes, merges, (statement, merge) -> {
+                statement.setLong(1, merge.keptId());
+                statement.setLong(2, merge.id());
+            });
+        }
+        Long[] changedIds = new Long[rewrites.size() + merges.size()];
+        Long[] mergedIds = new Long[merges.size()];
+        for (int i = 0; i < rewrites.size(); i++) {
+            changedIds[i] = rewrites.get(i).id();
+        }
+        for (int i = 0; i < merges.size(); i++) {
+            mergedIds[i] = merges.get(i).id();
+            changedIds[rewrites.size() + i] = mergedIds[i];
+        }
+        executeWithIds(connection, "DELETE FROM ScmKey WHERE scmInfo_id = ANY(?)", changedIds);
+        executeWithIds(connection, "DELETE FROM ScmInfo WHERE id = ANY(?)", mergedIds);
+
+        try (PreparedStatement rewrite = connection.prepareStatement("""
+                UPDATE ScmInfo
+                SET buildScmUrl = ?, originScmUrl = ?
+                WHERE id = ?
+                """)) {
+            executeBatches(rewrite, rewrites, (statement, row) -> {
+                statement.setString(1, row.buildScmUrl());
+                statement.setString(2, row.originScmUrl());
+                statement.setLong(3, row.id());
+            });
+        }
+        executeWithIds(connection, """
+                INSERT INTO ScmKey (url, revision, scmInfo_id)
+                SELECT u.url, r.revision, scm.id
+                FROM ScmInfo scm
+                CROSS JOIN LATERAL (VALUES (scm.buildScmUrl), (scm.originScmUrl)) u(url)
+                CROSS JOIN LATERAL (VALUES (scm.buildCommitId), (scm.originCommitId), (scm.originRevision)) r(revision)
+                WHERE scm.id = ANY(?) AND r.revision IS NOT NULL
+                ON CONFLICT DO NOTHING
+                """, rewrites.stream().map(Rewrite::id).toArray(Long[]::new));
+        try (PreparedStatement insertKey = connection.prepareStatement("""
+                INSERT INTO ScmKey (url, revision, scmInfo_id)
+                VALUES (?, ?, ?)
+                ON CONFLICT DO NOTHING
+                """)) {
+            List<Key> keys = new ArrayList<>();
+            for (Merge merge : merges) {
+                for (String url : merge.urls()) {
+                    for (String revision : merge.revisions()) {
+                        if (revision != null) {
+                            keys.add(new Key(url, revision, merge.keptId()));
+                        }
+                    }
+                }
+            }
+            executeBatches(insertKey, keys, (statement, key) -> {
+                statement.setString(1, key.url());
+                statement.setString(2, key.revision());
+                statement.setLong(3, key.scmInfoId());
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface Binder<T> {
+        void bind(PreparedStatement statement, T row) throws SQLException;
+    }
+
+    private static <T> void executeBatches(PreparedStatement statement, List<T> rows, Binder<T> binder)
+            throws SQLException {
+        for (int i = 0; i < rows.size(); i++) {
+            binder.bind(statement, rows.get(i));
+            statement.addBatch();
+            if ((i + 1) % BATCH_SIZE == 0 || i == rows.size() - 1) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private static void executeWithIds(Connection connection, String sql, Long[] ids) throws SQLException {
+        if (ids.length == 0) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Copy of {@code ScmUrls.canonicalize}: drops the scheme, user info, port, query and fragment, lower-cases the host
+     * and removes the trailing slashes and {@code .git} suffix of the path. The SSH form {@code git@host:path} is
+     * canonicalized as if it was {@code ssh://git@host/path}.
+     */
+    private static String canonicalize(String url) {
+        int start = 0;
+        int end = url.length();
+        while (start < end && Character.isWhitespace(url.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(url.charAt(end - 1))) {
+            end--;
+        }
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+
+        int firstSlash = indexOf(url, '/', start, end);
+        int colon = indexOf(url, ':', start, firstSlash);
+        int authorityStart = start;
+        int authorityEnd;
+        int pathStart;
+        if (colon < firstSlash && url.startsWith("//", colon + 1)) {
+            authorityStart = colon + 3;
+            authorityEnd = indexOf(url, '/', authorityStart, end);
+            pathStart = authorityEnd;
+        } else if (colon < firstSlash && !isPort(url, colon + 1, firstSlash, end)) {
+            authorityEnd = colon;
+            pathStart = colon + 1;
+        } else {
+            authorityEnd = firstSlash;
+            pathStart = firstSlash;
+        }
+
+        int hostStart = lastIndexOf(url, '@', authorityStart, authorityEnd) + 1;
+        if (hostStart == 0) {
+            hostStart = authorityStart;
+        }
+        int hostEnd;
+        if (hostStart < authorityEnd && url.charAt(hostStart) == '[') {
+            hostEnd = Math.min(indexOf(url, ']', hostStart, authorityEnd) + 1, authorityEnd);
+        } else {
+            hostEnd = indexOf(url, ':', hostStart, authorityEnd);
+        }
+
+        while (pathStart < end && url.charAt(pathStart) == '/') {
+            pathStart++;
+        }
+        while (end > pathStart && url.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (end - pathStart >= 4 && url.startsWith(".git", end - 4)) {
+            end -= 4;
+        }
+
+        StringBuilder canonical = new StringBuilder(hostEnd - hostStart + 1 + end - pathStart);
+        for (int i = hostStart; i < hostEnd; i++) {
+            char c = url.charAt(i);
+            canonical.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        if (end > pathStart) {
+            canonical.append('/').append(url, pathStart, end);
+        }
+        return canonical.toString();
+    }
+
+    private static boolean isPort(String url, int from, int to, int end) {
+        if (from == to || to == end) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(String url, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (url.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int lastIndexOf(String url, char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (url.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
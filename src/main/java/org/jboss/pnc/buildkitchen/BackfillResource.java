@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
+import org.jboss.pnc.buildkitchen.api.Backfill;
+import org.jboss.pnc.buildkitchen.api.BackfillFailureDTO;
+import org.jboss.pnc.buildkitchen.api.BackfillRequestDTO;
+import org.jboss.pnc.buildkitchen.api.BackfillStatusDTO;
+import org.jboss.pnc.buildkitchen.backfill.BackfillRunner;
+import org.jboss.pnc.buildkitchen.mapper.BackfillJobMapper;
+import org.jboss.pnc.buildkitchen.model.BackfillFailure;
+import org.jboss.pnc.buildkitchen.model.BackfillJob;
+import org.jboss.pnc.buildkitchen.model.BackfillState;
+
+import java.util.List;
+
+@ApplicationScoped
+public class BackfillResource implements Backfill {
+    @Inject
+    BackfillJobMapper mapper;
+
+    @Inject
+    BackfillRunner backfillRunner;
+
+    @Override
+    @Transactional
+    public List<BackfillStatusDTO> getAll() {
+        return BackfillJob.<BackfillJob> listAll().stream().map(mapper::toResource).toList();
+    }
+
+    @Override
+    @Transactional
+    public BackfillStatusDTO getSpecific(long id) {
+        return mapper.toResource(getJob(id));
+    }
+
+    @Override
+    @Transactional
+    public List<BackfillFailureDTO> getFailures(long id) {
+        getJob(id);
+        return BackfillFailure.findByJob(id).stream().map(mapper::toResource).toList();
+    }
+
+    @Override
+    public BackfillStatusDTO start(BackfillRequestDTO request) {
+        // the job has to be committed before the runner picks it up
+        BackfillJob job = QuarkusTransaction.requiringNew().call(() -> {
+            BackfillJob newJob = new BackfillJob();
+            newJob.since = request.getSince();
+            newJob.until = request.getUntil();
+            newJob.query = request.getQuery();
+            newJob.state = BackfillState.RUNNING;
+            newJob.persist();
+            return newJob;
+        });
+        backfillRunner.submit(job.id);
+        return mapper.toResource(job);
+    }
+
+    /**
+     * Pauses the job, the instance running it stops at the next checkpoint.
+     */
+    @Override
+    public BackfillStatusDTO pause(long id) {
+        BackfillJob job = QuarkusTransaction.requiringNew().call(() -> {
+            BackfillJob pausedJob = getJob(id);
+            if (pausedJob.state == BackfillState.RUNNING) {
+                pausedJob.state = BackfillState.PAUSED;
+            }
+            return pausedJob;
+        });
+        return mapper.toResource(job);
+    }
+
+    /**
+     * Resumes a paused or failed job. A finished job is resumed to import the builds finished since and to retry the
+     * builds that failed to import.
+     */
+    @Override
+    public BackfillStatusDTO resume(long id) {
+        BackfillJob job = QuarkusTransaction.requiringNew().call(() -> {
+            BackfillJob resumedJob = getJob(id);
+            if (resumedJob.state != BackfillState.RUNNING) {
+                resumedJob.state = BackfillState.RUNNING;
+            }
+            return resumedJob;
+        });
+        if (job.state == BackfillState.RUNNING) {
+            backfillRunner.submit(id);
+        }
+        return mapper.toResource(job);
+    }
+
+    private static BackfillJob getJob(long id) {
+        BackfillJob job = BackfillJob.findById(id);
+        if (job == null) {
+            throw new NotFoundException("Backfill job " + id + " not found.");
+        }
+        return job;
+    }
+}
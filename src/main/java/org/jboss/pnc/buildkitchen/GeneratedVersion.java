@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Finds the version generated by a build from the purls of its built artifacts, which are added one by one as they are
+ * read. The version is known when all the artifacts with a version have the same one. Purls without a version are
+ * skipped, and once a second version is seen the remaining purls are not parsed at all.
+ */
+final class GeneratedVersion {
+
+    private String version;
+
+    private boolean ambiguous;
+
+    /**
+     * Returns the version shared by all the given purls that have one.
+     */
+    static Optional<String> of(Collection<String> purls) {
+        GeneratedVersion generatedVersion = new GeneratedVersion();
+        for (String purl : purls) {
+            if (generatedVersion.isAmbiguous()) {
+                break;
+            }
+            generatedVersion.add(purl);
+        }
+        return generatedVersion.get();
+    }
+
+    void add(String purl) {
+        if (ambiguous || purl == null) {
+            return;
+        }
+        if (version == null) {
+            version = parseVersion(purl);
+        } else if (!hasVersion(purl, version)) {
+            String other = parseVersion(purl);
+            ambiguous = other != null && !other.equals(version);
+        }
+    }
+
+    boolean isAmbiguous() {
+        return ambiguous;
+    }
+
+    Optional<String> get() {
+        return ambiguous ? Optional.empty() : Optional.ofNullable(version);
+    }
+
+    /**
+     * Checks that the purl has the version without extracting it, which is the common case.
+     */
+    private static boolean hasVersion(String purl, String version) {
+        int end = versionEnd(purl);
+        int start = end - version.length();
+        return start > 0 && purl.charAt(start - 1) == '@' && purl.startsWith(version, start);
+    }
+
+    /**
+     * Returns the version of the purl, {@code pkg:type/namespace/name@version?qualifiers#subpath}, or null when it has
+     * none.
+     */
+    static String parseVersion(String purl) {
+        int end = versionEnd(purl);
+        int at = purl.lastIndexOf('@', end - 1);
+        if (at < 0 || at < purl.lastIndexOf('/', end - 1) || at == end - 1) {
+            return null;
+        }
+        String version = purl.substring(at + 1, end);
+        return version.indexOf('%') < 0 ? version : percentDecode(version);
+    }
+
+    private static int versionEnd(String purl) {
+        int end = purl.length();
+        int hash = purl.indexOf('#');
+        if (hash >= 0) {
+            end = hash;
+        }
+        int question = purl.indexOf('?');
+        if (question >= 0 && question < end) {
+            end = question;
+        }
+        return end;
+    }
+
+    private static String percentDecode(String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream(encoded.length);
+        for (int i = 0; i < encoded.length; i++) {
+            int high = i + 2 < encoded.length ? Character.digit(encoded[i + 1], 16) : -1;
+            int low = i + 2 < encoded.length ? Character.digit(encoded[i + 2], 16) : -1;
+            if (encoded[i] == '%' && high >= 0 && low >= 0) {
+                decoded.write(high << 4 | low);
+                i += 2;
+            } else {
+                decoded.write(encoded[i]);
+            }
+        }
+        return decoded.toString(StandardCharsets.UTF_8);
+    }
+}
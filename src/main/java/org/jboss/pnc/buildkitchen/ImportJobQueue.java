@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.ImportJobDTO;
+import org.jboss.pnc.buildkitchen.api.ImportJobState;
+import org.jboss.pnc.buildkitchen.mapper.BuildRecipeMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of asynchronous PNC build imports run by a bounded pool of workers. Submitting a build that is already queued or
+ * being imported returns the existing job. Jobs are kept until they finish, and finished jobs for a limited time, so
+ * that clients can poll for the result.
+ */
+@Slf4j
+@ApplicationScoped
+public class ImportJobQueue {
+
+    @Inject
+    PncImporter pncImporter;
+
+    @Inject
+    BuildRecipeMapper mapper;
+
+    @ConfigProperty(name = "build-kitchen.import.workers", defaultValue = "4")
+    int workers;
+
+    @ConfigProperty(name = "build-kitchen.import.queue-size", defaultValue = "1000")
+    int queueSize;
+
+    @ConfigProperty(name = "build-kitchen.import.job-retention", defaultValue = "PT1H")
+    Duration jobRetention;
+
+    private ThreadPoolExecutor executor;
+
+    private Cache<String, ImportJob> jobs;
+
+    /**
+     * Queued and running jobs by build id.
+     */
+    private final Map<String, ImportJob> activeJobs = new HashMap<>();
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize));
+        jobs = Caffeine.newBuilder().expireAfter(new FinishedJobExpiry(jobRetention.toNanos())).build();
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues import of the PNC build.
+     *
+     * @throws ServiceUnavailableException when the queue is full
+     */
+    public synchronized ImportJobDTO submit(String buildId) {
+        ImportJob activeJob = activeJobs.get(buildId);
+        if (activeJob != null) {
+            return activeJob.toResource();
+        }
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), buildId, Instant.now());
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException ex) {
+            throw new ServiceUnavailableException("Import queue is full, try again later.");
+        }
+        activeJobs.put(buildId, job);
+        jobs.put(job.id, job);
+        return job.toResource();
+    }
+
+    public Optional<ImportJobDTO> getJob(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id)).map(ImportJob::toResource);
+    }
+
+    private void run(ImportJob job) {
+        job.state = ImportJobState.RUNNING;
+        try {
+            job.recipe = mapper.toResource(pncImporter.importBuild(job.buildId));
+            job.state = ImportJobState.DONE;
+        } catch (RuntimeException ex) {
+            log.warn("Asynchronous import of PNC build {} failed", job.buildId, ex);
+            job.error = ex.getMessage();
+            job.state = ImportJobState.FAILED;
+        } finally {
+            job.finished = Instant.now();
+            synchronized (this) {
+                activeJobs.remove(job.buildId, job);
+                jobs.put(job.id, job); // start the retention period
+            }
+        }
+    }
+
+    /**
+     * Expires jobs the retention period after they finish, queued and running jobs don't expire.
+     */
+    private record FinishedJobExpiry(long retentionNanos) implements Expiry<String, ImportJob> {
+        @Override
+        public long expireAfterCreate(String id, ImportJob job, long currentTime) {
+            return job.finished == null ? Long.MAX_VALUE : retentionNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, ImportJob job, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, job, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, ImportJob job, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static class ImportJob {
+        final String id;
+        final String buildId;
+        final Instant submitted;
+        volatile ImportJobState state = ImportJobState.QUEUED;
+        volatile Instant finished;
+        volatile BuildRecipeDTO recipe;
+        volatile String error;
+
+        ImportJob(String id, String buildId, Instant submitted) {
+            this.id = id;
+            this.buildId = buildId;
+            this.submitted = submitted;
+        }
+
+        ImportJobDTO toResource() {
+            return ImportJobDTO.builder()
+                    .id(id)
+                    .buildId(buildId)
+                    .state(state)
+                    .submitted(submitted)
+                    .finished(finished)
+                    .recipe(recipe)
+                    .error(error)
+                    .build();
+        }
+    }
+}
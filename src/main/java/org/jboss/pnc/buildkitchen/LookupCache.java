@@ -0,0 +1,254 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.PurlSha;
+import org.jboss.pnc.buildkitchen.model.Build;
+import org.jboss.pnc.buildkitchen.model.BuildRecipe;
+import org.jboss.pnc.buildkitchen.model.ScmInfo;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache of lookup results, keyed by the normalized lookup query. Entries expire after a while, but persisting a build or
+ * a recipe invalidates the lookups it affects right away, once its transaction completes. Results loaded while any
+ * invalidation happens are not cached, as they may have been read before the invalidated commit.
+ */
+@ApplicationScoped
+public class LookupCache {
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @ConfigProperty(name = "build-kitchen.lookup-cache.max-size", defaultValue = "10000")
+    long maxSize;
+
+    @ConfigProperty(name = "build-kitchen.lookup-cache.expire-after-write", defaultValue = "PT10M")
+    Duration expireAfterWrite;
+
+    private Cache<Key, List<BuildRecipeDTO>> results;
+
+    /**
+     * Incremented by every invalidation, results loaded since an older generation are not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        results = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(expireAfterWrite).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "lookup-results");
+    }
+
+    public List<BuildRecipeDTO> get(Key key, Supplier<List<BuildRecipeDTO>> loader) {
+        List<BuildRecipeDTO> cached = results.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        List<BuildRecipeDTO> loaded = List.copyOf(loader.get());
+        cacheIfCurrent(key, loaded, loadGeneration);
+        return loaded;
+    }
+
+    /**
+     * Returns lookup results for the values, loading the ones that aren't cached at once. Values without any recipe are
+     * cached as well.
+     *
+     * @param kind {@link Kind#PURL} or {@link Kind#SHA256}
+     * @param loader loads recipes for the missing values, values without any recipe may be missing in the result
+     */
+    public Map<String, List<BuildRecipeDTO>> getAll(
+            Kind kind,
+            Collection<String> values,
+            Function<Set<String>, Map<String, List<BuildRecipeDTO>>> loader) {
+        Map<Key, String> keys = new LinkedHashMap<>();
+        for (String value : values) {
+            keys.put(new Key(kind, value, null), value);
+        }
+        Map<Key, List<BuildRecipeDTO>> cached = new HashMap<>(results.getAllPresent(keys.keySet()));
+        Set<String> missingValues = new HashSet<>();
+        keys.forEach((key, value) -> {
+            if (!cached.containsKey(key)) {
+                missingValues.add(value);
+            }
+        });
+        if (!missingValues.isEmpty()) {
+            long loadGeneration = generation.get();
+            Map<String, List<BuildRecipeDTO>> loaded = loader.apply(missingValues);
+            for (String value : missingValues) {
+                Key key = new Key(kind, value, null);
+                List<BuildRecipeDTO> recipes = List.copyOf(loaded.getOrDefault(value, List.of()));
+                cached.put(key, recipes);
+                cacheIfCurrent(key, recipes, loadGeneration);
+            }
+        }
+        Map<String, List<BuildRecipeDTO>> result = new LinkedHashMap<>();
+        keys.forEach((key, value) -> result.put(value, cached.get(key)));
+        return result;
+    }
+
+    /**
+     * Invalidates lookups that may find the newly created recipe. The recipe has no builds yet, so only lookups by SCM
+     * revision are affected.
+     */
+    public void invalidate(BuildRecipe recipe) {
+        invalidateOnCompletion(scmRevisionKeys(recipe.scmInfo));
+    }
+
+    /**
+     * Invalidates lookups that find the persisted build. Recipes never change, so lookups of the other builds of the
+     * recipe are not affected.
+     */
+    public void invalidate(Build build) {
+        Set<PurlSha> artifacts = new HashSet<>();
+        build.builtArtifacts.forEach(artifact -> artifacts.add(artifact.getPurlSha()));
+        invalidate(build, artifacts);
+    }
+
+    /**
+     * Invalidates lookups that find the persisted build, whose built artifacts are given by their purl and checksum, so
+     * that the artifacts don't need to be loaded.
+     */
+    public void invalidate(Build build, Collection<PurlSha> artifacts) {
+        BuildRecipe recipe = build.recipe;
+        Set<String> versions = new HashSet<>();
+        if (build.versionGenerated != null) {
+            versions.add(build.versionGenerated);
+        }
+
+        Set<Key> keys = scmRevisionKeys(recipe.scmInfo);
+        for (String url : scmUrls(recipe.scmInfo)) {
+            versions.forEach(version -> keys.add(new Key(Kind.SCM_VERSION, url, version)));
+        }
+        for (PurlSha artifact : artifacts) {
+            keys.add(new Key(Kind.PURL, artifact.purl(), null));
+            keys.add(new Key(Kind.SHA256, artifact.sha256(), null));
+        }
+        invalidateOnCompletion(keys);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        results.invalidateAll();
+    }
+
+    /**
+     * Caches the loaded result unless an invalidation happened since the load started. The check is done while the
+     * entry is locked, so an invalidation either drops the load or removes the entry after it is cached.
+     */
+    private void cacheIfCurrent(Key key, List<BuildRecipeDTO> loaded, long loadGeneration) {
+        results.asMap().compute(key, (k, current) -> generation.get() == loadGeneration ? loaded : current);
+    }
+
+    private void invalidateNow(Set<Key> keys) {
+        generation.incrementAndGet();
+        results.invalidateAll(keys);
+    }
+
+    /**
+     * Invalidates the keys once the current transaction completes, so that the lookups in the meantime can't cache the
+     * state before the commit. Without transaction, the keys are invalidated right away.
+     */
+    private void invalidateOnCompletion(Set<Key> keys) {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            invalidateNow(keys);
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                invalidateNow(keys);
+            }
+        });
+    }
+
+    private static Set<Key> scmRevisionKeys(ScmInfo scmInfo) {
+        Set<Key> keys = new HashSet<>();
+        for (String url : scmUrls(scmInfo)) {
+            Arrays.asList(scmInfo.buildCommitId, scmInfo.originCommitId, scmInfo.originRevision)
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .forEach(revision -> keys.add(new Key(Kind.SCM_REVISION, url, revision)));
+        }
+        return keys;
+    }
+
+    private static Set<String> scmUrls(ScmInfo scmInfo) {
+        return new HashSet<>(Arrays.asList(scmInfo.buildScmUrl, scmInfo.originScmUrl));
+    }
+
+    public enum Kind {
+        SCM_REVISION, SCM_VERSION, PURL, SHA256
+    }
+
+    /**
+     * Normalized lookup query. URLs are normalized the same way as in {@link ScmInfo}.
+     *
+     * @param first URL for SCM lookups, purl or checksum for artifact lookups
+     * @param second revision or version for SCM lookups, null for artifact lookups
+     */
+    public record Key(Kind kind, String first, String second) {
+
+        public static Key scmRevision(String url, String revision) {
+            return new Key(Kind.SCM_REVISION, ScmInfo.normalizeUrl(url), revision);
+        }
+
+        public static Key scmVersion(String url, String version) {
+            return new Key(Kind.SCM_VERSION, ScmInfo.normalizeUrl(url), version);
+        }
+
+        public static Key purl(String purl) {
+            return new Key(Kind.PURL, purl, null);
+        }
+
+        public static Key sha256(String sha256) {
+            return new Key(Kind.SHA256, sha256, null);
+        }
+    }
+}
@@ -17,42 +17,193 @@
  */
 package org.jboss.pnc.buildkitchen;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.BuildRecipePageDTO;
 import org.jboss.pnc.buildkitchen.api.Lookup;
 import org.jboss.pnc.buildkitchen.mapper.BuildRecipeMapper;
 import org.jboss.pnc.buildkitchen.model.BuildRecipe;
+import org.jboss.pnc.buildkitchen.model.PurlComponents;
+import org.jboss.pnc.buildkitchen.model.RecipeQuery;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Lookups are timed per method by the {@code build-kitchen.lookups} metric. The time of streaming lookups covers only
+ * opening the stream, not writing the recipes.
+ */
 @ApplicationScoped
+@Timed(value = "build-kitchen.lookups", histogram = true)
 public class LookupResource implements Lookup {
     @Inject
     BuildRecipeMapper buildRecipeMapper;
 
+    @Inject
+    LookupCache lookupCache;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "build-kitchen.lookup.stream-page-size", defaultValue = "500")
+    int streamPageSize;
+
     @Override
     public List<BuildRecipeDTO> lookupByScmRevision(String url, String revision) {
-        return BuildRecipe.findByScmInfo(url, revision)
-                .stream()
-                .map(buildRecipeMapper::toResource)
-                .collect(Collectors.toList());
+        return lookupCache.get(
+                LookupCache.Key.scmRevision(url, revision),
+                () -> toResources(BuildRecipe.findByScmInfo(url, revision)));
     }
 
     @Override
     public List<BuildRecipeDTO> lookupByScmVersion(String url, String version) {
-        return BuildRecipe.findByScmUrlAndVersion(url, version)
-                .stream()
-                .map(buildRecipeMapper::toResource)
-                .collect(Collectors.toList());
+        return lookupCache.get(
+                LookupCache.Key.scmVersion(url, version),
+                () -> toResources(BuildRecipe.findByScmUrlAndVersion(url, version)));
     }
 
     @Override
     public List<BuildRecipeDTO> lookupByPurl(String purl) {
-        return BuildRecipe.findByPurl(purl)
-                .stream()
-                .map(buildRecipeMapper::toResource)
-                .collect(Collectors.toList());
+        return lookupCache.get(LookupCache.Key.purl(purl), () -> toResources(BuildRecipe.findByPurl(purl)));
+    }
+
+    @Override
+    public Map<String, List<BuildRecipeDTO>> lookupByPurls(List<String> purls) {
+        return lookupCache.getAll(
+                LookupCache.Kind.PURL,
+                purls,
+                missingPurls -> toResources(BuildRecipe.findByPurls(missingPurls)));
+    }
+
+    @Override
+    public List<BuildRecipeDTO> lookupBySha256(String sha256) {
+        String checksum = normalizeChecksum(sha256);
+        return lookupCache.get(
+                LookupCache.Key.sha256(checksum),
+                () -> toResources(BuildRecipe.bySha256(checksum).list()));
+    }
+
+    @Override
+    public Map<String, List<BuildRecipeDTO>> lookupBySha256s(List<String> sha256s) {
+        Map<String, String> checksums = new LinkedHashMap<>();
+        sha256s.forEach(sha256 -> checksums.put(sha256, normalizeChecksum(sha256)));
+        Map<String, List<BuildRecipeDTO>> recipes = lookupCache.getAll(
+                LookupCache.Kind.SHA256,
+                checksums.values(),
+                missingChecksums -> toResources(BuildRecipe.findBySha256s(missingChecksums)));
+        Map<String, List<BuildRecipeDTO>> result = new LinkedHashMap<>();
+        checksums.forEach((sha256, checksum) -> result.put(sha256, recipes.get(checksum)));
+        return result;
+    }
+
+    /**
+     * Not cached, as a new build of any version of the package would have to invalidate all the ranges.
+     */
+    @Override
+    public Map<String, List<BuildRecipeDTO>> lookupByPackage(String purl, String minVersion, String maxVersion) {
+        PurlComponents pkg = PurlComponents.parse(purl);
+        if (pkg == PurlComponents.UNPARSEABLE) {
+            throw new BadRequestException("Invalid package URL " + purl);
+        }
+        if (pkg.version() != null && minVersion == null && maxVersion == null) {
+            minVersion = pkg.version();
+            maxVersion = pkg.version();
+        }
+        return toResources(BuildRecipe.findByPackage(pkg.type(), pkg.namespace(), pkg.name(), minVersion, maxVersion));
+    }
+
+    @Override
+    public BuildRecipePageDTO pageByScmRevision(String url, String revision, Long after, int limit) {
+        return toPage(BuildRecipe.byScmRevision(url, revision).page(after, limit), limit);
+    }
+
+    @Override
+    public StreamingOutput streamByScmRevision(String url, String revision) {
+        return stream(BuildRecipe.byScmRevision(url, revision));
+    }
+
+    @Override
+    public BuildRecipePageDTO pageByScmVersion(String url, String version, Long after, int limit) {
+        return toPage(BuildRecipe.byScmUrlAndVersion(url, version).page(after, limit), limit);
+    }
+
+    @Override
+    public StreamingOutput streamByScmVersion(String url, String version) {
+        return stream(BuildRecipe.byScmUrlAndVersion(url, version));
+    }
+
+    @Override
+    public BuildRecipePageDTO pageByPurl(String purl, Long after, int limit) {
+        return toPage(BuildRecipe.byPurl(purl).page(after, limit), limit);
+    }
+
+    @Override
+    public StreamingOutput streamByPurl(String purl) {
+        return stream(BuildRecipe.byPurl(purl));
+    }
+
+    private BuildRecipePageDTO toPage(List<BuildRecipe> recipes, int limit) {
+        Long next = recipes.size() < limit ? null : recipes.get(recipes.size() - 1).id;
+        return BuildRecipePageDTO.builder().recipes(toResources(recipes)).next(next).build();
+    }
+
+    /**
+     * Writes the recipes one per line, reading them by pages. Each page is read in its own short transaction and
+     * written once it ends, so that a slow client doesn't hold a database connection.
+     */
+    private StreamingOutput stream(RecipeQuery query) {
+        return output -> {
+            Long after = null;
+            List<BuildRecipeDTO> page;
+            do {
+                Long pageAfter = after;
+                page = QuarkusTransaction.requiringNew()
+                        .call(() -> toResources(query.page(pageAfter, streamPageSize)));
+                for (BuildRecipeDTO recipe : page) {
+                    output.write(objectMapper.writeValueAsBytes(recipe));
+                    output.write('\n');
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == streamPageSize);
+        };
+    }
+
+    /**
+     * Checksums are stored as lower-case hex.
+     */
+    private static String normalizeChecksum(String sha256) {
+        return sha256 == null ? null : sha256.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Maps recipes by key, mapping each recipe only once.
+     */
+    private Map<String, List<BuildRecipeDTO>> toResources(Map<String, List<BuildRecipe>> recipesByKey) {
+        Map<Long, BuildRecipeDTO> mappedRecipes = new HashMap<>();
+        Map<String, List<BuildRecipeDTO>> result = new LinkedHashMap<>();
+        recipesByKey.forEach(
+                (key, recipes) -> result.put(
+                        key,
+                        recipes.stream()
+                                .map(r -> mappedRecipes.computeIfAbsent(r.id, id -> buildRecipeMapper.toResource(r)))
+                                .collect(Collectors.toList())));
+        return result;
+    }
+
+    private List<BuildRecipeDTO> toResources(List<BuildRecipe> recipes) {
+        return recipes.stream().map(buildRecipeMapper::toResource).collect(Collectors.toList());
     }
 }
@@ -36,6 +36,9 @@ public class PNCClientProducer {
     @ConfigProperty(name = "build-kitchen.pnc.url")
     URL pncURL;
 
+    @ConfigProperty(name = "build-kitchen.pnc.page-size", defaultValue = "100")
+    int pageSize;
+
     @PostConstruct
     public void initClients() {
         System.err.println("Connecting to " + pncURL);
@@ -43,6 +46,7 @@ public class PNCClientProducer {
                 .host(pncURL.getHost())
                 .port(pncURL.getPort())
                 .protocol(pncURL.getProtocol())
+                .pageSize(pageSize)
                 .build();
         buildClient = new BuildClient(configuration);
         buildConfigClient = new BuildConfigurationClient(configuration);
@@ -17,13 +17,23 @@
  */
 package org.jboss.pnc.buildkitchen;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
-import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
-import org.commonjava.atlas.npm.ident.ref.NpmPackageRef;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.Hibernate;
 import org.jboss.pnc.api.constants.BuildConfigurationParameterKeys;
 import org.jboss.pnc.api.constants.BuildGenerator;
 import org.jboss.pnc.buildkitchen.api.PurlSha;
@@ -32,6 +42,7 @@ import org.jboss.pnc.buildkitchen.model.BuildTool;
 import org.jboss.pnc.buildkitchen.model.ScmInfo;
 import org.jboss.pnc.client.BuildClient;
 import org.jboss.pnc.client.BuildConfigurationClient;
+import org.jboss.pnc.client.RemoteCollection;
 import org.jboss.pnc.client.RemoteResourceException;
 import org.jboss.pnc.dto.Artifact;
 import org.jboss.pnc.dto.Build;
@@ -39,19 +50,28 @@ import org.jboss.pnc.dto.BuildConfigurationRevision;
 import org.jboss.pnc.dto.BuildConfigurationRevisionRef;
 import org.jboss.pnc.dto.Environment;
 import org.jboss.pnc.enums.BuildStatus;
-import org.jboss.pnc.enums.BuildType;
-import org.jboss.pnc.restclient.util.ArtifactUtil;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.LongStream;
 
 @Slf4j
 @ApplicationScoped
@@ -64,78 +84,305 @@ public class PncImporter {
     @Inject
     BuildConfigurationClient buildConfigClient;
 
-    @Transactional
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    LookupCache lookupCache;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @ConfigProperty(name = "build-kitchen.pnc.fetch-threads", defaultValue = "16")
+    int fetchThreads;
+
+    @ConfigProperty(name = "build-kitchen.pnc.page-size", defaultValue = "100")
+    int pageSize;
+
+    @ConfigProperty(name = "build-kitchen.pnc.revision-cache.max-size", defaultValue = "10000")
+    long revisionCacheMaxSize;
+
+    @ConfigProperty(name = "build-kitchen.pnc.revision-cache.expire-after-write", defaultValue = "PT12H")
+    Duration revisionCacheExpireAfterWrite;
+
+    private ExecutorService fetchExecutor;
+
+    /**
+     * Parameters of build config revisions. A revision never changes in PNC, the expiration only keeps the cache from
+     * holding revisions that aren't built anymore.
+     */
+    private Cache<RevisionKey, Map<String, String>> revisionParameters;
+
+    @PostConstruct
+    void init() {
+        fetchExecutor = Executors.newFixedThreadPool(fetchThreads);
+        revisionParameters = Caffeine.newBuilder()
+                .maximumSize(revisionCacheMaxSize)
+                .expireAfterWrite(revisionCacheExpireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, revisionParameters, "pnc-revision-parameters");
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Imports PNC build. The data are fetched from PNC first, without any transaction open, and only then persisted in
+     * a short transaction, so that the database connection is not held for the PNC round-trip time.
+     */
     public BuildRecipe importBuild(String buildId) {
-        Optional<org.jboss.pnc.buildkitchen.model.Build> exsisingBuild = org.jboss.pnc.buildkitchen.model.Build.pncBuild(buildId);
-        if (exsisingBuild.isPresent()) {
+        Optional<BuildRecipe> importedRecipe = QuarkusTransaction.requiringNew().call(() -> findImported(buildId));
+        if (importedRecipe.isPresent()) {
             log.info("Skipped importing already registered PNC build {}", buildId);
-            return exsisingBuild.get().recipe;
+            return importedRecipe.get();
+        }
+
+        log.info("Importing PNC build {}", buildId);
+        FetchedBuild fetchedBuild = timeStage("fetch", () -> fetch(buildId));
+        return QuarkusTransaction.requiringNew().call(() -> persist(fetchedBuild));
+    }
+
+    /**
+     * Imports several PNC builds at once. The builds are fetched from PNC in parallel and persisted in a single
+     * transaction. Should the shared transaction fail, the builds are persisted one by one, so that one broken build
+     * doesn't prevent import of the others.
+     *
+     * @return failures of the builds that couldn't be imported, by build id
+     */
+    public Map<String, RuntimeException> importBuilds(Collection<String> buildIds) {
+        Set<String> importedBuildIds = QuarkusTransaction.requiringNew()
+                .call(() -> org.jboss.pnc.buildkitchen.model.Build.importedPncBuildIds(buildIds));
+        Map<String, CompletableFuture<FetchedBuild>> fetching = new LinkedHashMap<>();
+        for (String buildId : buildIds) {
+            if (importedBuildIds.contains(buildId)) {
+                log.info("Skipped importing already registered PNC build {}", buildId);
+            } else if (!fetching.containsKey(buildId)) {
+                log.info("Importing PNC build {}", buildId);
+                fetching.put(buildId, fetchAsync(buildId));
+            }
+        }
+
+        Map<String, RuntimeException> failures = new HashMap<>();
+        List<FetchedBuild> fetchedBuilds = new ArrayList<>();
+        fetching.forEach((buildId, fetchedBuild) -> {
+            try {
+                fetchedBuilds.add(join(fetchedBuild));
+            } catch (RuntimeException ex) {
+                log.warn("Failed to fetch PNC build {}", buildId, ex);
+                failures.put(buildId, ex);
+            }
+        });
+        if (fetchedBuilds.isEmpty()) {
+            return failures;
         }
 
+        // reference data are created in the order of the builds, keep it the same for concurrent batches
+        fetchedBuilds.sort(Comparator.comparing(FetchedBuild::buildId));
         try {
-            log.info("Importing PNC build {}", buildId);
-            Build pncBuild = getSuccessfulBuild(buildId);
-            Collection<Artifact> builtArtifacts = buildClient.getBuiltArtifacts(buildId).getAll();
-            BuildType buildType = pncBuild.getBuildConfigRevision().getBuildType();
-
-            ScmInfo scmInfo = getScmInfo(
-                    pncBuild.getScmUrl(),
-                    pncBuild.getScmRevision(),
-                    pncBuild.getScmRepository().getExternalUrl(),
-                    pncBuild.getScmBuildConfigRevision(),
-                    pncBuild.getBuildConfigRevision().getScmRevision());
-
-            Set<BuildTool> buildTools = getBuildTools(pncBuild.getEnvironment().getAttributes());
-            long memoryRequired = getMemoryRequired(pncBuild.getBuildConfigRevision());
-
-            BuildRecipe buildRecipe = getRecipe(scmInfo);
-            buildRecipe.buildScript = pncBuild.getBuildConfigRevision().getBuildScript();
-            buildRecipe.buildTools = buildTools;
-            buildRecipe.memoryRequired = memoryRequired;
-            buildRecipe.persist();
-
-            org.jboss.pnc.buildkitchen.model.Build build = new org.jboss.pnc.buildkitchen.model.Build();
-            build.recipe = buildRecipe;
-            build.generator = BuildGenerator.PNC;
-            build.buildId = buildId;
-            build.buildDuration = Duration.between(pncBuild.getStartTime(), pncBuild.getEndTime()).getSeconds();
-            build.buildTime = pncBuild.getEndTime();
-            build.memory = memoryRequired;
-            build.image = getImage(pncBuild.getEnvironment());
-            build.builtArtifacts = new HashSet<>(persistArtifacts(builtArtifacts).values());
-            build.versionGenerated = findGeneratedVersion(builtArtifacts, buildType).orElse(null);
-            build.persist();
-
-            buildRecipe.builds.add(build);
-
-            log.debug("PNC build {} imported as build {} with recipe {}", buildId, build.buildId, buildRecipe.id);
-            return buildRecipe;
-        } catch (RemoteResourceException ex) {
-            throw new RuntimeException("Failed to read build information from PNC.", ex);
+            QuarkusTransaction.requiringNew().run(() -> persistAll(fetchedBuilds));
+        } catch (RuntimeException batchException) {
+            log.warn("Failed to persist {} PNC builds at once, persisting one by one", fetchedBuilds.size(), batchException);
+            for (FetchedBuild fetchedBuild : fetchedBuilds) {
+                try {
+                    QuarkusTransaction.requiringNew().run(() -> persist(fetchedBuild));
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to persist PNC build {}", fetchedBuild.buildId(), ex);
+                    failures.put(fetchedBuild.buildId(), ex);
+                }
+            }
         }
+        return failures;
     }
 
-    private Optional<String> findGeneratedVersion(Collection<Artifact> builtArtifacts, BuildType buildType) {
+    /**
+     * Reads all the information about the build needed for the import from PNC. Independent PNC calls are issued in
+     * parallel. The built artifacts are stored right away, see {@link #readBuiltArtifacts(String)}.
+     */
+    public FetchedBuild fetch(String buildId) {
+        return join(fetchAsync(buildId));
+    }
+
+    private CompletableFuture<FetchedBuild> fetchAsync(String buildId) {
+        CompletableFuture<Build> pncBuild = callAsync(() -> getSuccessfulBuild(buildId));
+        CompletableFuture<BuiltArtifacts> builtArtifacts = callAsync(() -> readBuiltArtifacts(buildId));
+        CompletableFuture<Long> memoryRequired = pncBuild
+                .thenCompose(build -> callAsync(() -> getMemoryRequired(build.getBuildConfigRevision())));
+        return CompletableFuture.allOf(pncBuild, builtArtifacts, memoryRequired)
+                .thenApply(v -> new FetchedBuild(buildId, pncBuild.join(), builtArtifacts.join(), memoryRequired.join()));
+    }
+
+    private static FetchedBuild join(CompletableFuture<FetchedBuild> fetchedBuild) {
         try {
-            Set<String> versions = switch (buildType) {
-                case SBT, GRADLE,
-                        MVN ->
-                    builtArtifacts.stream()
-                            .map(ArtifactUtil::parseMavenCoordinates)
-                            .map(SimpleProjectVersionRef::getVersionString)
-                            .collect(Collectors.toSet());
-                case NPM -> builtArtifacts.stream()
-                        .map(ArtifactUtil::parseNPMCoordinates)
-                        .map(NpmPackageRef::getVersionString)
-                        .collect(Collectors.toSet());
-            };
-            if (versions.size() == 1) {
-                return Optional.of(versions.iterator().next());
+            return fetchedBuild.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RemoteResourceException) {
+                throw new RuntimeException("Failed to read build information from PNC.", ex.getCause());
+            }
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Stores build fetched from PNC. If the build was imported in the meantime, the existing recipe is returned.
+     */
+    @Transactional
+    public BuildRecipe persist(FetchedBuild fetchedBuild) {
+        return persistAll(List.of(fetchedBuild)).get(0);
+    }
+
+    /**
+     * Stores builds fetched from PNC. The SCM information and build tools are resolved once for all the builds. If some
+     * build was imported in the meantime, the existing recipe is returned for it.
+     *
+     * @return recipes of the builds in the order of the given builds
+     */
+    @Transactional
+    public List<BuildRecipe> persistAll(List<FetchedBuild> fetchedBuilds) {
+        timeCommit();
+        Set<String> importedBuildIds = org.jboss.pnc.buildkitchen.model.Build
+                .importedPncBuildIds(fetchedBuilds.stream().map(FetchedBuild::buildId).toList());
+        Map<List<String>, ScmInfo> scmInfos = new HashMap<>();
+        Map<List<String>, BuildTool> buildTools = new HashMap<>();
+
+        List<BuildRecipe> buildRecipes = new ArrayList<>(fetchedBuilds.size());
+        Map<org.jboss.pnc.buildkitchen.model.Build, BuiltArtifacts> builds = new LinkedHashMap<>();
+        for (FetchedBuild fetchedBuild : fetchedBuilds) {
+            if (importedBuildIds.contains(fetchedBuild.buildId())) {
+                log.info("Skipped importing already registered PNC build {}", fetchedBuild.buildId());
+                buildRecipes.add(findImported(fetchedBuild.buildId()).orElseThrow());
+            } else {
+                org.jboss.pnc.buildkitchen.model.Build build = persist(fetchedBuild, scmInfos, buildTools);
+                builds.put(build, fetchedBuild.builtArtifacts());
+                buildRecipes.add(build.recipe);
+            }
+        }
+        timeStage("flush", () -> {
+            BuildRecipe.flush();
+            // the builds exist now, the artifacts are associated without loading them
+            builds.forEach(
+                    (build, builtArtifacts) -> lookupCache
+                            .invalidate(build, build.linkBuiltArtifacts(builtArtifacts.artifactIds())));
+            return null;
+        });
+        return buildRecipes;
+    }
+
+    private org.jboss.pnc.buildkitchen.model.Build persist(
+            FetchedBuild fetchedBuild,
+            Map<List<String>, ScmInfo> scmInfos,
+            Map<List<String>, BuildTool> buildTools) {
+        String buildId = fetchedBuild.buildId();
+        Build pncBuild = fetchedBuild.build();
+        BuiltArtifacts builtArtifacts = fetchedBuild.builtArtifacts();
+
+        List<String> scmKey = Arrays.asList(
+                pncBuild.getScmUrl(),
+                pncBuild.getScmRevision(),
+                pncBuild.getScmRepository().getExternalUrl(),
+                pncBuild.getScmBuildConfigRevision(),
+                pncBuild.getBuildConfigRevision().getScmRevision());
+        ScmInfo scmInfo = timeStage(
+                "scm-info",
+                () -> scmInfos.computeIfAbsent(
+                        scmKey,
+                        k -> getScmInfo(k.get(0), k.get(1), k.get(2), k.get(3), k.get(4))));
+
+        long memoryRequired = fetchedBuild.memoryRequired();
+
+        Set<BuildTool> recipeBuildTools = timeStage(
+                "build-tools",
+                () -> getBuildTools(pncBuild.getEnvironment().getAttributes(), buildTools));
+        BuildRecipe buildRecipe = timeStage(
+                "recipe",
+                () -> BuildRecipe.getOrCreate(
+                        scmInfo,
+                        pncBuild.getBuildConfigRevision().getBuildScript(),
+                        recipeBuildTools,
+                        memoryRequired));
+
+        org.jboss.pnc.buildkitchen.model.Build build = new org.jboss.pnc.buildkitchen.model.Build();
+        build.recipe = buildRecipe;
+        build.generator = BuildGenerator.PNC;
+        build.buildId = buildId;
+        build.buildDuration = Duration.between(pncBuild.getStartTime(), pncBuild.getEndTime()).getSeconds();
+        build.buildTime = pncBuild.getEndTime();
+        build.memory = memoryRequired;
+        build.image = getImage(pncBuild.getEnvironment());
+        build.versionGenerated = builtArtifacts.versionGenerated();
+        build.persist();
+
+        log.debug("PNC build {} imported as build {} with recipe {}", buildId, build.buildId, buildRecipe.id);
+        return build;
+    }
+
+    private static Optional<BuildRecipe> findImported(String buildId) {
+        return org.jboss.pnc.buildkitchen.model.Build.pncBuild(buildId).map(build -> {
+            // the recipe is used outside of the transaction, load the collections while we can
+            Hibernate.initialize(build.recipe.buildScript);
+            Hibernate.initialize(build.recipe.buildTools);
+            return build.recipe;
+        });
+    }
+
+    private <T> CompletableFuture<T> callAsync(PncCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (RemoteResourceException ex) {
+                throw new CompletionException(ex);
             }
-        } catch (RuntimeException ex) {
-            log.warn("Caught exception when parsing the generated version.", ex);
+        }, fetchExecutor);
+    }
+
+    /**
+     * Times a stage of the import, see {@code build-kitchen.import.stage} metric.
+     */
+    private <T> T timeStage(String stage, Supplier<T> action) {
+        return meterRegistry.timer("build-kitchen.import.stage", "stage", stage).record(action);
+    }
+
+    /**
+     * Times the commit of the current transaction as the {@code commit} stage of the import. Entities are flushed
+     * before, so this is the time the database takes to commit.
+     */
+    private void timeCommit() {
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            private long start;
+
+            @Override
+            public void beforeCompletion() {
+                start = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (start != 0) {
+                    meterRegistry.timer("build-kitchen.import.stage", "stage", "commit")
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    /**
+     * Times a call to PNC, tagged with the outcome, so that the error rate of the PNC API can be watched.
+     */
+    private <T> T timePncCall(String call, PncCall<T> pncCall) throws RemoteResourceException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = pncCall.call();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(meterRegistry.timer("build-kitchen.pnc.requests", "call", call, "outcome", outcome));
         }
-        return Optional.empty();
     }
 
     private static String getImage(Environment environment) {
@@ -147,7 +394,7 @@ public class PncImporter {
     }
 
     private Build getSuccessfulBuild(String buildId) throws RemoteResourceException {
-        Build pncBuild = buildClient.getSpecific(buildId);
+        Build pncBuild = timePncCall("build", () -> buildClient.getSpecific(buildId));
 
         if (pncBuild == null) {
             throw new IllegalArgumentException("Build " + buildId + " not found.");
@@ -168,49 +415,103 @@ public class PncImporter {
         return ScmInfo.getOrCreate(buildUrl, buildCommitId, originUrl, originCommitId, revision);
     }
 
-    private static BuildRecipe getRecipe(ScmInfo scmInfo) {
-        List<BuildRecipe> byScmInfo = BuildRecipe.findByScmInfo(scmInfo);
-        BuildRecipe buildRecipe;
-        if (byScmInfo.size() == 1) {
-            buildRecipe = byScmInfo.get(0);
-        } else { // Zero or multiple and can't decide between them => create new
-            buildRecipe = new BuildRecipe();
-            buildRecipe.scmInfo = scmInfo;
-        }
-        return buildRecipe;
-    }
-
-    private Set<BuildTool> getBuildTools(Map<String, String> attributes) {
+    private Set<BuildTool> getBuildTools(Map<String, String> attributes, Map<List<String>, BuildTool> buildTools) {
         // TODO filter bad keys out, or just set of good keys in
+        // created in a fixed order, so that imports creating the same build tools concurrently can't deadlock
         return attributes.entrySet()
                 .stream()
-                .map(e -> BuildTool.getOrCreate(e.getKey(), e.getValue()))
+                .sorted(Map.Entry.comparingByKey())
+                .map(
+                        e -> buildTools.computeIfAbsent(
+                                Arrays.asList(e.getKey(), e.getValue()),
+                                k -> BuildTool.getOrCreate(k.get(0), k.get(1))))
                 .collect(Collectors.toSet());
     }
 
     private long getMemoryRequired(BuildConfigurationRevisionRef buildConfigRevision) throws RemoteResourceException {
-        BuildConfigurationRevision revision = buildConfigClient
-                .getRevision(buildConfigRevision.getId(), buildConfigRevision.getRev());
-        String memory = revision.getParameters()
+        RevisionKey key = new RevisionKey(buildConfigRevision.getId(), buildConfigRevision.getRev());
+        Map<String, String> parameters = revisionParameters.getIfPresent(key);
+        if (parameters == null) {
+            BuildConfigurationRevision revision = timePncCall(
+                    "build-config-revision",
+                    () -> buildConfigClient.getRevision(key.id(), key.rev()));
+            parameters = revision.getParameters();
+            revisionParameters.put(key, parameters);
+        }
+        String memory = parameters
                 .getOrDefault(BuildConfigurationParameterKeys.BUILDER_POD_MEMORY.name(), DEFAULT_MEMORY);
         return (long) (Double.parseDouble(memory) * 1024 * 1024 * 1024);
     }
 
-    private Map<PurlSha, org.jboss.pnc.buildkitchen.model.Artifact> persistArtifacts(
-            Collection<Artifact> builtArtifacts) {
-        Set<PurlSha> purls = StreamSupport.stream(builtArtifacts.spliterator(), false)
-                .map(a -> new PurlSha(a.getPurl(), a.getSha256()))
-                .collect(Collectors.toSet());
-
-        HashMap<PurlSha, org.jboss.pnc.buildkitchen.model.Artifact> artifacts = new HashMap<>();
-        artifacts.putAll(org.jboss.pnc.buildkitchen.model.Artifact.findByPurls(purls));
-        purls.removeAll(artifacts.keySet());
-        for (PurlSha purlSha : purls) {
-            org.jboss.pnc.buildkitchen.model.Artifact artifact = new org.jboss.pnc.buildkitchen.model.Artifact(purlSha);
-            artifact.persist();
-            artifacts.put(purlSha, artifact);
+    /**
+     * Reads the built artifacts from PNC page by page, so that only one page of the artifacts is held at a time. Each
+     * page is reduced to the purl and checksum pairs, which also give the generated version, and the artifacts are
+     * stored in a transaction of their own. Only the ids of the stored artifacts are kept until the build is persisted.
+     * Artifacts never change, so there is nothing to undo should the import fail later.
+     * <p>
+     * Every page read is timed as a {@code built-artifacts} PNC call, the first one by the request for the collection,
+     * the next ones by the iterator moving past the end of a page.
+     */
+    private BuiltArtifacts readBuiltArtifacts(String buildId) throws RemoteResourceException {
+        RemoteCollection<Artifact> pages = timePncCall("built-artifacts", () -> buildClient.getBuiltArtifacts(buildId));
+        Iterator<Artifact> iterator = pages.iterator();
+        LongStream.Builder ids = LongStream.builder();
+        GeneratedVersion generatedVersion = new GeneratedVersion();
+        Set<PurlSha> page = new HashSet<>();
+        for (int read = 0;; read++) {
+            Artifact artifact = read > 0 && read % pageSize == 0
+                    ? timePncCall("built-artifacts", () -> nextOrNull(iterator))
+                    : nextOrNull(iterator);
+            if (artifact == null) {
+                break;
+            }
+            page.add(new PurlSha(artifact.getPurl(), artifact.getSha256()));
+            generatedVersion.add(artifact.getPurl());
+            if (page.size() == pageSize) {
+                persistArtifacts(page).forEach(ids);
+                page.clear();
+            }
         }
-        return artifacts;
+        if (!page.isEmpty()) {
+            persistArtifacts(page).forEach(ids);
+        }
+        return new BuiltArtifacts(ids.build().toArray(), generatedVersion.get().orElse(null));
     }
 
+    private static <T> T nextOrNull(Iterator<T> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private LongStream persistArtifacts(Set<PurlSha> purls) {
+        long[] ids = timeStage("artifacts", () -> QuarkusTransaction.requiringNew().call(() -> {
+            Collection<org.jboss.pnc.buildkitchen.model.Artifact> artifacts = org.jboss.pnc.buildkitchen.model.Artifact
+                    .getOrCreate(purls)
+                    .values();
+            return artifacts.stream().mapToLong(artifact -> artifact.id).toArray();
+        }));
+        return LongStream.of(ids);
+    }
+
+    /**
+     * Build information read from PNC, ready to be persisted.
+     */
+    public record FetchedBuild(String buildId, Build build, BuiltArtifacts builtArtifacts, long memoryRequired) {
+    }
+
+    /**
+     * Stored artifacts built by a build.
+     *
+     * @param artifactIds ids of the artifacts
+     * @param versionGenerated version of the artifacts, null when they don't share one
+     */
+    public record BuiltArtifacts(long[] artifactIds, String versionGenerated) {
+    }
+
+    private record RevisionKey(String id, int rev) {
+    }
+
+    @FunctionalInterface
+    private interface PncCall<T> {
+        T call() throws RemoteResourceException;
+    }
 }
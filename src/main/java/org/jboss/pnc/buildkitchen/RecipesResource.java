@@ -20,10 +20,15 @@ package org.jboss.pnc.buildkitchen;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 import org.jboss.pnc.api.constants.BuildGenerator;
 import org.jboss.pnc.buildkitchen.api.ArtifactDTO;
 import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
 import org.jboss.pnc.buildkitchen.api.BuildToolDTO;
+import org.jboss.pnc.buildkitchen.api.ImportJobDTO;
 import org.jboss.pnc.buildkitchen.api.PNCBuild;
 import org.jboss.pnc.buildkitchen.api.PurlSha;
 import org.jboss.pnc.buildkitchen.api.Recipes;
@@ -35,9 +40,8 @@ import org.jboss.pnc.buildkitchen.model.BuildRecipe;
 import org.jboss.pnc.buildkitchen.model.BuildTool;
 import org.jboss.pnc.buildkitchen.model.ScmInfo;
 
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -51,19 +55,34 @@ public class RecipesResource implements Recipes {
     @Inject
     PncImporter pncImporter;
 
+    @Inject
+    ImportJobQueue importJobQueue;
+
+    @Inject
+    LookupCache lookupCache;
+
+    @Context
+    UriInfo uriInfo;
+
     @Override
     public BuildRecipeDTO getSpecific(long id) {
-        return mapper.toResource(BuildRecipe.findById(id));
+        return mapper.toResource(BuildRecipe.findByIdFetched(id));
+    }
+
+    @Override
+    public String getDiscrepancyWithUpstream(long id) {
+        BuildRecipe recipe = BuildRecipe.<BuildRecipe> findByIdOptional(id)
+                .orElseThrow(() -> new NotFoundException("Recipe " + id + " not found."));
+        return recipe.discrepancyWithUpstream == null ? null : recipe.discrepancyWithUpstream.text();
     }
 
     @Override
     public BuildRecipeDTO createRecipe(BuildRecipeDTO recipe) {
         ScmInfo scmInfo = getScmInfo(recipe.getScmInfo());
         Set<BuildTool> buildTools = getBuildTools(recipe.getBuildTools());
-        BuildRecipe entity = mapper.toModel(recipe);
-        entity.scmInfo = scmInfo;
-        entity.buildTools = buildTools;
-        entity.persist();
+        BuildRecipe entity = BuildRecipe
+                .getOrCreate(scmInfo, recipe.getBuildScript(), buildTools, recipe.getMemoryRequired());
+        lookupCache.invalidate(entity);
         return mapper.toResource(entity);
     }
 
@@ -71,19 +90,8 @@ public class RecipesResource implements Recipes {
     public BuildRecipeDTO submitPNCBuild(PNCBuild build) {
         ScmInfo scmInfo = getScmInfo(build.getScmInfo());
 
-        List<BuildRecipe> byScmInfo = BuildRecipe.findByScmInfo(scmInfo);
-        BuildRecipe buildRecipe;
-        if (byScmInfo.size() == 1) {
-            buildRecipe = byScmInfo.get(0);
-        } else { // Zero or multiple and can't decide between them => create new
-            buildRecipe = new BuildRecipe();
-            buildRecipe.scmInfo = scmInfo;
-        }
-        Set<BuildTool> buildTools = getBuildTools(build.getBuildTools());
-        buildRecipe.buildScript = build.buildScript;
-        buildRecipe.buildTools = buildTools;
-        buildRecipe.memoryRequired = build.memory;
-        buildRecipe.persist();
+        BuildRecipe buildRecipe = BuildRecipe
+                .getOrCreate(scmInfo, build.buildScript, getBuildTools(build.getBuildTools()), build.memory);
 
         Build buildEntity = new Build();
         buildEntity.recipe = buildRecipe;
@@ -94,18 +102,41 @@ public class RecipesResource implements Recipes {
         buildEntity.memory = build.getMemory();
         buildEntity.image = build.getImage();
         buildEntity.builtArtifacts = new HashSet<>(persistArtifacts(build.builtArtifacts).values());
+        buildEntity.versionGenerated = build.versionGenerated != null ? build.versionGenerated
+                : GeneratedVersion.of(build.builtArtifacts.stream().map(ArtifactDTO::getPurl).toList()).orElse(null);
         buildEntity.persist();
 
-        buildRecipe.builds.add(buildEntity);
+        lookupCache.invalidate(buildEntity);
 
         return mapper.toResource(buildRecipe);
     }
 
     @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED) // PncImporter manages its own transactions
     public BuildRecipeDTO submitPNCBuild(String buildId) {
         return mapper.toResource(pncImporter.importBuild(buildId));
     }
 
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public Response submitPNCBuildAsync(String buildId) {
+        ImportJobDTO job = importJobQueue.submit(buildId);
+        return Response.accepted(job)
+                .location(
+                        uriInfo.getBaseUriBuilder()
+                                .path(Recipes.class)
+                                .path(Recipes.class, "getImportJob")
+                                .build(job.getId()))
+                .build();
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public ImportJobDTO getImportJob(String id) {
+        return importJobQueue.getJob(id)
+                .orElseThrow(() -> new NotFoundException("Import job " + id + " not found."));
+    }
+
     private static ScmInfo getScmInfo(ScmInfoDTO scmInfoDto) {
         return ScmInfo.getOrCreate(
                 scmInfoDto.getBuildScmUrl(),
@@ -116,21 +147,15 @@ public class RecipesResource implements Recipes {
     }
 
     public static Set<BuildTool> getBuildTools(Set<BuildToolDTO> recipe) {
-        return recipe.stream().map(bt -> BuildTool.getOrCreate(bt.identifier, bt.version)).collect(Collectors.toSet());
+        // created in a fixed order, so that requests creating the same build tools concurrently can't deadlock
+        return recipe.stream()
+                .sorted(Comparator.comparing(BuildToolDTO::getIdentifier).thenComparing(BuildToolDTO::getVersion))
+                .map(bt -> BuildTool.getOrCreate(bt.identifier, bt.version))
+                .collect(Collectors.toSet());
     }
 
     private Map<PurlSha, Artifact> persistArtifacts(Set<ArtifactDTO> artifactDTOS) {
-        HashSet<PurlSha> purls = artifactDTOS.stream()
-                .map(ArtifactDTO::getPurlSha)
-                .collect(Collectors.toCollection(HashSet::new));
-        HashMap<PurlSha, Artifact> artifacts = new HashMap<>();
-        artifacts.putAll(Artifact.findByPurls(purls));
-        purls.removeAll(artifacts.keySet());
-        for (PurlSha purlSha : purls) {
-            Artifact artifact = new Artifact(purlSha);
-            artifact.persist();
-            artifacts.put(purlSha, artifact);
-        }
-        return artifacts;
+        Set<PurlSha> purls = artifactDTOS.stream().map(ArtifactDTO::getPurlSha).collect(Collectors.toSet());
+        return Artifact.getOrCreate(purls);
     }
 }
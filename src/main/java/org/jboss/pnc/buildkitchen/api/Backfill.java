@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.api;
+
+import jakarta.validation.Valid;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+
+import java.util.List;
+
+@Path("/backfill")
+public interface Backfill {
+
+    @GET
+    List<BackfillStatusDTO> getAll();
+
+    @GET
+    @Path("/{id}")
+    BackfillStatusDTO getSpecific(@PathParam("id") long id);
+
+    /**
+     * PNC builds the job failed to import so far.
+     */
+    @GET
+    @Path("/{id}/failures")
+    List<BackfillFailureDTO> getFailures(@PathParam("id") long id);
+
+    @POST
+    BackfillStatusDTO start(@Valid BackfillRequestDTO request);
+
+    @POST
+    @Path("/{id}/pause")
+    BackfillStatusDTO pause(@PathParam("id") long id);
+
+    @POST
+    @Path("/{id}/resume")
+    BackfillStatusDTO resume(@PathParam("id") long id);
+}
@@ -0,0 +1,50 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.api;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.Instant;
+
+@Value
+@Builder
+@Jacksonized
+public class ImportJobDTO {
+
+    String id;
+
+    String buildId;
+
+    ImportJobState state;
+
+    Instant submitted;
+
+    Instant finished;
+
+    /**
+     * The imported recipe, when the job is {@link ImportJobState#DONE}.
+     */
+    BuildRecipeDTO recipe;
+
+    /**
+     * Reason of the failure, when the job is {@link ImportJobState#FAILED}.
+     */
+    String error;
+}
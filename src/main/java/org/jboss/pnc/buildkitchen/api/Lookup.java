@@ -17,26 +17,128 @@
  */
 package org.jboss.pnc.buildkitchen.api;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.util.List;
+import java.util.Map;
 
 @Path("/lookup")
 public interface Lookup {
 
+    String DEFAULT_LIMIT = "100";
+
+    int MAX_LIMIT = 1000;
+
+    String NDJSON = "application/x-ndjson";
+
     @GET
     @Path("/by-scm-revision")
     List<BuildRecipeDTO> lookupByScmRevision(@QueryParam("url") String url, @QueryParam("revision") String revision);
 
+    /**
+     * Returns a page of recipes ordered by id.
+     *
+     * @param after id of the last recipe of the previous page ({@link BuildRecipePageDTO#getNext()}), none for the
+     *        first page
+     */
+    @GET
+    @Path("/by-scm-revision/page")
+    BuildRecipePageDTO pageByScmRevision(
+            @QueryParam("url") String url,
+            @QueryParam("revision") String revision,
+            @QueryParam("after") Long after,
+            @QueryParam("limit") @DefaultValue(DEFAULT_LIMIT) @Min(1) @Max(MAX_LIMIT) int limit);
+
+    /**
+     * Streams recipes as newline delimited JSON, as they are read from the database page by page.
+     */
+    @GET
+    @Path("/by-scm-revision/stream")
+    @Produces(NDJSON)
+    StreamingOutput streamByScmRevision(@QueryParam("url") String url, @QueryParam("revision") String revision);
 
     @GET
     @Path("/by-scm-version")
     List<BuildRecipeDTO> lookupByScmVersion(@QueryParam("url") String url, @QueryParam("version") String version);
 
+    @GET
+    @Path("/by-scm-version/page")
+    BuildRecipePageDTO pageByScmVersion(
+            @QueryParam("url") String url,
+            @QueryParam("version") String version,
+            @QueryParam("after") Long after,
+            @QueryParam("limit") @DefaultValue(DEFAULT_LIMIT) @Min(1) @Max(MAX_LIMIT) int limit);
+
+    @GET
+    @Path("/by-scm-version/stream")
+    @Produces(NDJSON)
+    StreamingOutput streamByScmVersion(@QueryParam("url") String url, @QueryParam("version") String version);
+
     @GET
     @Path("/by-purl")
     List<BuildRecipeDTO> lookupByPurl(@QueryParam("purl") String purl);
 
+    @GET
+    @Path("/by-purl/page")
+    BuildRecipePageDTO pageByPurl(
+            @QueryParam("purl") String purl,
+            @QueryParam("after") Long after,
+            @QueryParam("limit") @DefaultValue(DEFAULT_LIMIT) @Min(1) @Max(MAX_LIMIT) int limit);
+
+    @GET
+    @Path("/by-purl/stream")
+    @Produces(NDJSON)
+    StreamingOutput streamByPurl(@QueryParam("purl") String purl);
+
+    /**
+     * Looks up recipes of builds that produced an artifact with the checksum.
+     */
+    @GET
+    @Path("/by-sha256")
+    List<BuildRecipeDTO> lookupBySha256(@QueryParam("sha256") @NotNull String sha256);
+
+    /**
+     * Looks up recipes for many checksums at once.
+     *
+     * @return recipes that produced an artifact with the checksum, by checksum
+     */
+    @POST
+    @Path("/by-sha256s")
+    Map<String, List<BuildRecipeDTO>> lookupBySha256s(@NotNull List<String> sha256s);
+
+    /**
+     * Looks up recipes of any version of a package, optionally within a version range. Versions are compared segment by
+     * segment, numerically where the segments are numbers.
+     *
+     * @param purl package URL, e.g. {@code pkg:maven/io.netty/netty-handler}; a version in the purl is looked up
+     *        exactly, unless a range is given
+     * @param minVersion lowest version, inclusive
+     * @param maxVersion highest version, inclusive
+     * @return recipes that produced the package, by purl ordered by version
+     */
+    @GET
+    @Path("/by-package")
+    Map<String, List<BuildRecipeDTO>> lookupByPackage(
+            @QueryParam("purl") @NotNull String purl,
+            @QueryParam("minVersion") String minVersion,
+            @QueryParam("maxVersion") String maxVersion);
+
+    /**
+     * Looks up recipes for many purls at once.
+     *
+     * @return recipes that produced the artifact, by purl
+     */
+    @POST
+    @Path("/by-purls")
+    Map<String, List<BuildRecipeDTO>> lookupByPurls(@NotNull List<String> purls);
+
 }
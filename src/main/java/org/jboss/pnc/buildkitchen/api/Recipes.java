@@ -23,6 +23,9 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
 @Path("/recipes")
 public interface Recipes {
@@ -31,6 +34,15 @@ public interface Recipes {
     @Path("/{id}")
     BuildRecipeDTO getSpecific(@PathParam("id") long id);
 
+    /**
+     * Returns the difference of the recipe's artifacts with upstream, or 204 when there is none. Not part of the
+     * recipe, as it can be megabytes.
+     */
+    @GET
+    @Path("/{id}/discrepancy-with-upstream")
+    @Produces(MediaType.TEXT_PLAIN)
+    String getDiscrepancyWithUpstream(@PathParam("id") long id);
+
     @POST
     BuildRecipeDTO createRecipe(@Valid BuildRecipeDTO recipe);
 
@@ -41,4 +53,15 @@ public interface Recipes {
     @POST
     @Path("/pnc-build-by-id")
     BuildRecipeDTO submitPNCBuild(@NotEmpty String buildId);
+
+    /**
+     * Queues import of the PNC build and returns 202 with the import job right away.
+     */
+    @POST
+    @Path("/pnc-build-by-id/async")
+    Response submitPNCBuildAsync(@NotEmpty String buildId);
+
+    @GET
+    @Path("/import-jobs/{id}")
+    ImportJobDTO getImportJob(@PathParam("id") String id);
 }
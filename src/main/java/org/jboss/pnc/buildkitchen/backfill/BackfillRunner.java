@@ -0,0 +1,320 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.backfill;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.buildkitchen.PncImporter;
+import org.jboss.pnc.buildkitchen.model.BackfillFailure;
+import org.jboss.pnc.buildkitchen.model.BackfillJob;
+import org.jboss.pnc.buildkitchen.model.BackfillState;
+import org.jboss.pnc.client.BuildClient;
+import org.jboss.pnc.client.RemoteCollection;
+import org.jboss.pnc.client.RemoteResourceException;
+import org.jboss.pnc.dto.Build;
+import org.jboss.pnc.rest.api.parameters.BuildsFilterParameters;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Runs backfill jobs. The PNC builds are read page by page in the order they finished and imported in batches, the
+ * parallelism within a batch is bounded by the {@link PncImporter} fetch threads. After each batch the job checkpoint
+ * is stored, so that the job resumes from there after pause or restart. Builds that fail to import are recorded as
+ * {@link BackfillFailure} and retried once all the builds are read.
+ * <p>
+ * A job is run by the instance holding its lease, which is renewed with every checkpoint. The other instances try to
+ * claim the job whenever the lease would expire, so a job of an instance that is gone is taken over.
+ */
+@Slf4j
+@ApplicationScoped
+public class BackfillRunner {
+
+    @Inject
+    BuildClient buildClient;
+
+    @Inject
+    PncImporter pncImporter;
+
+    @ConfigProperty(name = "build-kitchen.backfill.batch-size", defaultValue = "50")
+    int batchSize;
+
+    @ConfigProperty(name = "build-kitchen.backfill.workers", defaultValue = "2")
+    int workers;
+
+    /**
+     * How long a job stays claimed by an instance without a checkpoint. Must be longer than import of a batch takes.
+     */
+    @ConfigProperty(name = "build-kitchen.backfill.lease", defaultValue = "PT5M")
+    Duration lease;
+
+    /**
+     * Owner of the jobs run by this instance.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private ExecutorService executor;
+
+    private ScheduledExecutorService claimTimer;
+
+    /**
+     * Jobs being run by this instance with flags whether they were submitted again in the meantime.
+     */
+    private final Map<Long, AtomicBoolean> running = new HashMap<>();
+
+    @PostConstruct
+    void initExecutor() {
+        executor = Executors.newFixedThreadPool(workers);
+        claimTimer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        claimTimer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    void resumeRunningJobs(@Observes StartupEvent event) {
+        List<Long> jobIds = QuarkusTransaction.requiringNew()
+                .call(() -> BackfillJob.findRunning().stream().map(job -> job.id).toList());
+        jobIds.forEach(this::submit);
+    }
+
+    /**
+     * Releases the jobs of this instance, so that another instance can take them over right away instead of once the
+     * leases expire. The batches being imported are not checkpointed, they are imported again by the next owner.
+     */
+    void releaseJobs(@Observes ShutdownEvent event) {
+        try {
+            QuarkusTransaction.requiringNew().run(() -> BackfillJob.releaseAll(instanceId));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to release backfill jobs", ex);
+        }
+    }
+
+    /**
+     * Starts running the job on this instance, unless it isn't running or another instance holds its lease. In the
+     * latter case claiming the job is retried once the lease would expire.
+     *
+     * @return whether the job runs on this instance
+     */
+    public synchronized boolean submit(long jobId) {
+        AtomicBoolean submittedAgain = running.get(jobId);
+        if (submittedAgain != null) {
+            // the run may be stopping because the job was paused, it checks the flag when it ends
+            submittedAgain.set(true);
+            return true;
+        }
+        Claim claim = QuarkusTransaction.requiringNew().call(() -> claim(jobId));
+        if (claim == Claim.LEASED) {
+            log.info("Backfill job {} is run by another instance", jobId);
+            claimTimer.schedule(() -> submit(jobId), lease.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (claim != Claim.CLAIMED) {
+            return false;
+        }
+        AtomicBoolean newSubmittedAgain = new AtomicBoolean();
+        running.put(jobId, newSubmittedAgain);
+        executor.execute(() -> {
+            try {
+                run(jobId);
+            } finally {
+                finished(jobId, newSubmittedAgain);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Whether the job is being run by this instance.
+     */
+    public synchronized boolean isRunning(long jobId) {
+        return running.containsKey(jobId);
+    }
+
+    private Claim claim(long jobId) {
+        BackfillJob job = BackfillJob.findByIdForUpdate(jobId);
+        if (job == null || job.state != BackfillState.RUNNING) {
+            return Claim.NOT_RUNNING;
+        }
+        if (job.isLeasedToOther(instanceId)) {
+            return Claim.LEASED;
+        }
+        job.lease(instanceId, lease);
+        return Claim.CLAIMED;
+    }
+
+    private synchronized void finished(long jobId, AtomicBoolean submittedAgain) {
+        running.remove(jobId, submittedAgain);
+        if (submittedAgain.get()) {
+            submit(jobId);
+        }
+    }
+
+    private void run(long jobId) {
+        try {
+            BackfillJob job = QuarkusTransaction.requiringNew().call(() -> BackfillJob.findById(jobId));
+            log.info("Running backfill job {} from {}", jobId, job.cursor != null ? job.cursor : job.since);
+            RemoteCollection<Build> builds = buildClient.getAll(
+                    new BuildsFilterParameters(),
+                    List.of(),
+                    Optional.of("=asc=endTime"),
+                    Optional.of(pncQuery(job)));
+            int remaining = builds.size();
+            boolean proceed = checkpoint(jobId, j -> {
+                j.total = j.processed + remaining - j.processedAtCursor;
+                j.resumedAt = Instant.now();
+                j.processedAtResume = j.processed;
+            });
+
+            // the builds at the cursor were counted before the job was paused or taken over
+            long alreadyCounted = job.cursor != null ? job.processedAtCursor : 0;
+            Instant cursor = null;
+            long atCursor = 0;
+            Iterator<Build> iterator = builds.iterator();
+            while (proceed && iterator.hasNext()) {
+                List<Build> batch = new ArrayList<>(batchSize);
+                long counted = 0;
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    Build build = iterator.next();
+                    batch.add(build);
+                    if (alreadyCounted > 0 && build.getEndTime().equals(job.cursor)) {
+                        alreadyCounted--;
+                    } else {
+                        counted++;
+                    }
+                    if (build.getEndTime().equals(cursor)) {
+                        atCursor++;
+                    } else {
+                        cursor = build.getEndTime();
+                        atCursor = 1;
+                    }
+                }
+                List<String> buildIds = batch.stream().map(Build::getId).toList();
+                Map<String, RuntimeException> failures = pncImporter.importBuilds(buildIds);
+                long batchCounted = counted;
+                Instant batchCursor = cursor;
+                long batchAtCursor = atCursor;
+                proceed = checkpoint(jobId, j -> {
+                    j.processed += batchCounted;
+                    j.failed = BackfillFailure.record(j, buildIds, failures);
+                    j.cursor = batchCursor;
+                    j.processedAtCursor = batchAtCursor;
+                });
+            }
+            if (proceed) {
+                proceed = retryFailures(jobId);
+            }
+            if (proceed) {
+                checkpoint(jobId, j -> {
+                    j.state = BackfillState.FINISHED;
+                    j.release(instanceId);
+                });
+                log.info("Backfill job {} finished", jobId);
+            } else {
+                log.info("Backfill job {} paused", jobId);
+            }
+        } catch (RemoteResourceException | RuntimeException ex) {
+            log.error("Backfill job {} failed", jobId, ex);
+            checkpoint(jobId, j -> {
+                j.state = BackfillState.FAILED;
+                j.release(instanceId);
+            });
+        }
+    }
+
+    /**
+     * Imports the builds that failed to import so far once more.
+     *
+     * @return whether the job should proceed
+     */
+    private boolean retryFailures(long jobId) {
+        List<String> failedBuildIds = QuarkusTransaction.requiringNew()
+                .call(() -> BackfillFailure.findBuildIds(jobId));
+        boolean proceed = true;
+        for (int from = 0; proceed && from < failedBuildIds.size(); from += batchSize) {
+            List<String> buildIds = failedBuildIds.subList(from, Math.min(from + batchSize, failedBuildIds.size()));
+            log.info("Retrying import of {} PNC builds that failed in backfill job {}", buildIds.size(), jobId);
+            Map<String, RuntimeException> failures = pncImporter.importBuilds(buildIds);
+            proceed = checkpoint(jobId, j -> j.failed = BackfillFailure.record(j, buildIds, failures));
+        }
+        return proceed;
+    }
+
+    /**
+     * Builds the RSQL query for the builds still to be imported. Builds finished exactly at the cursor time are read
+     * again, they are skipped by the importer as already imported and not counted as processed again.
+     */
+    private static String pncQuery(BackfillJob job) {
+        StringJoiner query = new StringJoiner(";");
+        query.add("status==SUCCESS");
+        query.add("endTime=ge=" + (job.cursor != null ? job.cursor : job.since));
+        if (job.until != null) {
+            query.add("endTime=le=" + job.until);
+        }
+        if (job.query != null && !job.query.isBlank()) {
+            query.add("(" + job.query + ")");
+        }
+        return query.toString();
+    }
+
+    /**
+     * Applies the change to the job, if it still runs on this instance, and renews the lease. A job paused or taken
+     * over by another instance in the meantime is not changed and released.
+     *
+     * @return whether the job should proceed
+     */
+    private boolean checkpoint(long jobId, Consumer<BackfillJob> change) {
+        return QuarkusTransaction.requiringNew().call(() -> {
+            BackfillJob job = BackfillJob.findByIdForUpdate(jobId);
+            if (job.state != BackfillState.RUNNING || !instanceId.equals(job.owner)) {
+                job.release(instanceId);
+                return false;
+            }
+            job.lease(instanceId, lease);
+            change.accept(job);
+            return true;
+        });
+    }
+
+    private enum Claim {
+        CLAIMED, LEASED, NOT_RUNNING
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.backfill;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.buildkitchen.model.Artifact;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Parses purls of the artifacts stored before the purl components were, in the background after startup. Each batch is
+ * parsed and stored in its own transaction.
+ */
+@Slf4j
+@ApplicationScoped
+public class PurlBackfill {
+
+    @ConfigProperty(name = "build-kitchen.purl-backfill.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "build-kitchen.purl-backfill.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (enabled) {
+            executor.execute(this::run);
+        }
+    }
+
+    private void run() {
+        long parsed = 0;
+        try {
+            int batch;
+            do {
+                batch = QuarkusTransaction.requiringNew().call(() -> Artifact.parseUnparsedPurls(batchSize));
+                parsed += batch;
+            } while (batch > 0 && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException ex) {
+            log.error("Parsing of artifact purls failed after {} artifacts", parsed, ex);
+            return;
+        }
+        if (parsed > 0) {
+            log.info("Parsed purls of {} artifacts", parsed);
+        }
+    }
+}
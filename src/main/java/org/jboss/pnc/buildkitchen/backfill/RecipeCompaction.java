@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.backfill;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.exception.ConstraintViolationException;
+import org.jboss.pnc.buildkitchen.LookupCache;
+import org.jboss.pnc.buildkitchen.model.BuildRecipe;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hashes the recipes stored before recipes were identified by their content, in the background after startup. Recipes
+ * with the same content are merged into one. Each batch is compacted in its own transaction, with its recipes locked,
+ * so that instances compacting at once take different batches. A batch conflicting with a recipe hashed or created
+ * concurrently is retried, the retry merges into that recipe.
+ */
+@Slf4j
+@ApplicationScoped
+public class RecipeCompaction {
+
+    @ConfigProperty(name = "build-kitchen.recipe-compaction.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "build-kitchen.recipe-compaction.batch-size", defaultValue = "1000")
+    int batchSize;
+
+    /**
+     * How many times a batch is attempted when it conflicts with concurrently hashed or created recipes.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Inject
+    LookupCache lookupCache;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @PreDestroy
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    void start(@Observes StartupEvent event) {
+        if (enabled) {
+            executor.execute(this::run);
+        }
+    }
+
+    private void run() {
+        long processed = 0;
+        long merged = 0;
+        try {
+            BuildRecipe.Compaction batch;
+            do {
+                batch = compactBatch();
+                processed += batch.processed();
+                merged += batch.merged();
+            } while (batch.processed() > 0 && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException ex) {
+            log.error("Compaction of recipes failed after {} recipes", processed, ex);
+            return;
+        }
+        if (processed > 0) {
+            log.info("Compacted {} recipes, {} merged into recipes with the same content", processed, merged);
+        }
+    }
+
+    private BuildRecipe.Compaction compactBatch() {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return QuarkusTransaction.requiringNew().call(() -> {
+                    BuildRecipe.Compaction batch = BuildRecipe.compact(batchSize);
+                    // lookups may still return the merged recipes, invalidated once the batch commits
+                    batch.movedBuilds().forEach(lookupCache::invalidate);
+                    return batch;
+                });
+            } catch (RuntimeException ex) {
+                if (attempt >= MAX_ATTEMPTS || !isConstraintViolation(ex)) {
+                    throw ex;
+                }
+                log.info("Recipe compaction conflicted with a concurrent transaction, retrying the batch", ex);
+            }
+        }
+    }
+
+    private static boolean isConstraintViolation(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
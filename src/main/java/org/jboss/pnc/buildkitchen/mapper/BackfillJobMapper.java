@@ -0,0 +1,34 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.mapper;
+
+import org.jboss.pnc.buildkitchen.api.BackfillFailureDTO;
+import org.jboss.pnc.buildkitchen.api.BackfillStatusDTO;
+import org.jboss.pnc.buildkitchen.model.BackfillFailure;
+import org.jboss.pnc.buildkitchen.model.BackfillJob;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "jakarta")
+public interface BackfillJobMapper {
+    @Mapping(target = "buildsPerSecond", expression = "java(backfillJob.throughput())")
+    @Mapping(target = "estimatedCompletion", expression = "java(backfillJob.estimatedCompletion())")
+    BackfillStatusDTO toResource(BackfillJob backfillJob);
+
+    BackfillFailureDTO toResource(BackfillFailure backfillFailure);
+}
@@ -19,11 +19,14 @@ package org.jboss.pnc.buildkitchen.mapper;
 
 import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
 import org.jboss.pnc.buildkitchen.model.BuildRecipe;
+import org.jboss.pnc.buildkitchen.model.TextBlob;
 import org.mapstruct.Mapper;
 
 @Mapper(componentModel = "jakarta", uses = { ScmInfoMapper.class })
 public interface BuildRecipeMapper {
     BuildRecipeDTO toResource(BuildRecipe buildRecipe);
 
-    BuildRecipe toModel(BuildRecipeDTO buildRecipe);
+    default String toText(TextBlob blob) {
+        return blob == null ? null : blob.text();
+    }
 }
\ No newline at end of file
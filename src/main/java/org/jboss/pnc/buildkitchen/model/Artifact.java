@@ -17,25 +17,42 @@
  */
 package org.jboss.pnc.buildkitchen.model;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 import org.jboss.pnc.buildkitchen.api.PurlSha;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Entity
+@Cacheable
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = { "purl", "sha256" }))
 public class Artifact extends PanacheEntity {
 
+    static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * Increment of {@code Artifact_SEQ}, the allocation size of the id generator of the entity.
+     */
+    private static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final Cache<PurlSha, Long> IDS = Caffeine.newBuilder().maximumSize(100_000).build();
+
     /**
      * Package URL identifying the artifact.
      */
@@ -48,6 +65,21 @@ public class Artifact extends PanacheEntity {
     @NotNull
     public String sha256;
 
+    /**
+     * Components of the purl, null until the purl is parsed, see {@link PurlComponents}.
+     */
+    public String purlType;
+
+    public String purlNamespace;
+
+    public String purlName;
+
+    public String purlVersion;
+
+    public String purlVersionKey;
+
+    public String purlQualifiers;
+
     public PurlSha getPurlSha() {
         return new PurlSha(purl, sha256);
     }
@@ -60,26 +92,207 @@ public class Artifact extends PanacheEntity {
         this.sha256 = purlSha.sha256();
     }
 
+    /**
+     * Finds existing artifacts with the given purl and checksum pairs. The pairs are passed to the database as two
+     * arrays joined via {@code unnest}, so the query has a constant number of bind parameters regardless of the number
+     * of artifacts. Very large sets are split into chunks of {@value #CHUNK_SIZE}.
+     */
+    @SuppressWarnings("unchecked")
     public static Map<PurlSha, Artifact> findByPurls(Set<PurlSha> purls) {
-        if (purls.isEmpty()) {
-            return Map.of();
+        Map<PurlSha, Artifact> artifacts = new HashMap<>();
+        forEachChunk(purls, chunk -> {
+            List<Artifact> found = getEntityManager().createNativeQuery("""
+                    SELECT a.*
+                    FROM Artifact a
+                    JOIN unnest(CAST(:purls AS text[]), CAST(:shas AS text[])) AS k(purl, sha256)
+                        ON a.purl = k.purl AND a.sha256 = k.sha256
+                    """, Artifact.class)
+                    .setParameter("purls", column(chunk, PurlSha::purl))
+                    .setParameter("shas", column(chunk, PurlSha::sha256))
+                    .getResultList();
+            for (Artifact artifact : found) {
+                artifacts.put(artifact.getPurlSha(), artifact);
+            }
+        });
+        return artifacts;
+    }
+
+    /**
+     * Returns artifacts with the given purl and checksum pairs, creating the missing ones. The missing artifacts are
+     * inserted with a single statement per chunk of {@value #CHUNK_SIZE}. Artifacts inserted by a concurrent
+     * transaction in the meantime are skipped by the insert and just loaded. The purls are stored parsed into
+     * {@link PurlComponents}.
+     * <p>
+     * Ids of the artifacts are cached, so known artifacts are loaded by id, from the second-level cache when there.
+     */
+    public static Map<PurlSha, Artifact> getOrCreate(Set<PurlSha> purls) {
+        Map<PurlSha, Artifact> artifacts = findByIds(IDS.getAllPresent(purls).values());
+        if (artifacts.size() < purls.size()) {
+            Set<PurlSha> uncached = new HashSet<>(purls);
+            uncached.removeAll(artifacts.keySet());
+            Map<PurlSha, Artifact> found = findOrCreate(uncached);
+            found.forEach((purlSha, artifact) -> IDS.put(purlSha, artifact.id));
+            artifacts.putAll(found);
         }
-        List<PurlSha> purlShas = new ArrayList<>(purls);
-        String query = "FROM Artifact a WHERE ";
-        Map<String, Object> params = new HashMap<>();
-        for (int i = 0; i < purlShas.size(); i++) {
-            if (i > 0) {
-                query += " OR ";
+        return artifacts;
+    }
+
+    /**
+     * Loads artifacts by id, skipping the ones that don't exist. Ids of artifacts inserted by a transaction that was
+     * rolled back may be cached.
+     */
+    private static Map<PurlSha, Artifact> findByIds(Collection<Long> ids) {
+        Map<PurlSha, Artifact> artifacts = new HashMap<>();
+        if (ids.isEmpty()) {
+            return artifacts;
+        }
+        List<Artifact> found = getEntityManager().unwrap(Session.class)
+                .byMultipleIds(Artifact.class)
+                .enableSessionCheck(true)
+                .multiLoad(new ArrayList<>(ids));
+        for (Artifact artifact : found) {
+            if (artifact != null) {
+                artifacts.put(artifact.getPurlSha(), artifact);
+            }
+        }
+        return artifacts;
+    }
+
+    private static Map<PurlSha, Artifact> findOrCreate(Set<PurlSha> purls) {
+        Map<PurlSha, Artifact> artifacts = findByPurls(purls);
+        if (artifacts.size() == purls.size()) {
+            return artifacts;
+        }
+        Set<PurlSha> missing = new HashSet<>(purls);
+        missing.removeAll(artifacts.keySet());
+        forEachChunk(missing, chunk -> {
+            List<PurlComponents> components = chunk.stream()
+                    .map(purlSha -> PurlComponents.parse(purlSha.purl()))
+                    .toList();
+            getEntityManager().createNativeQuery("""
+                    INSERT INTO Artifact (
+                        id, purl, sha256,
+                        purlType, purlNamespace, purlName, purlVersion, purlVersionKey, purlQualifiers)
+                    SELECT k.*
+                    FROM unnest(
+                            CAST(:ids AS bigint[]),
+                            CAST(:purls AS text[]),
+                            CAST(:shas AS text[]),
+                            CAST(:types AS text[]),
+                            CAST(:namespaces AS text[]),
+                            CAST(:names AS text[]),
+                            CAST(:versions AS text[]),
+                            CAST(:versionKeys AS text[]),
+                            CAST(:qualifiers AS text[])
+                        ) AS k(id, purl, sha256, type, namespace, name, version, versionKey, qualifiers)
+                    ON CONFLICT (purl, sha256) DO NOTHING
+                    """)
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                    .setParameter("ids", allocateIds(chunk.size()))
+                    .setParameter("purls", column(chunk, PurlSha::purl))
+                    .setParameter("shas", column(chunk, PurlSha::sha256))
+                    .setParameter("types", column(components, PurlComponents::type))
+                    .setParameter("namespaces", column(components, PurlComponents::namespace))
+                    .setParameter("names", column(components, PurlComponents::name))
+                    .setParameter("versions", column(components, PurlComponents::version))
+                    .setParameter("versionKeys", column(components, PurlComponents::versionKey))
+                    .setParameter("qualifiers", column(components, PurlComponents::qualifiers))
+                    .executeUpdate();
+        });
+        artifacts.putAll(findByPurls(missing));
+        return artifacts;
+    }
+
+    /**
+     * Allocates ids for new artifacts from {@code Artifact_SEQ} the way the pooled optimizer of Hibernate does, so that
+     * they can't collide with ids of artifacts persisted through Hibernate: every value of the sequence is the highest
+     * id of a block of {@value #ID_ALLOCATION_SIZE} ids owned by the caller. Only the ids left over in the last block
+     * are wasted, instead of a whole block for every artifact.
+     */
+    @SuppressWarnings("unchecked")
+    private static Long[] allocateIds(int count) {
+        Long[] ids = new Long[count];
+        int allocated = 0;
+        while (allocated < count) {
+            int blocks = (count - allocated + ID_ALLOCATION_SIZE - 1) / ID_ALLOCATION_SIZE;
+            List<Number> highIds = getEntityManager()
+                    .createNativeQuery("SELECT nextval('Artifact_SEQ') FROM generate_series(1, :blocks)")
+                    .setParameter("blocks", blocks)
+                    .getResultList();
+            for (Number highId : highIds) {
+                // the first value of the sequence has no block below it, ids start at 1
+                long id = Math.max(1, highId.longValue() - ID_ALLOCATION_SIZE + 1);
+                for (; id <= highId.longValue() && allocated < count; id++) {
+                    ids[allocated++] = id;
+                }
             }
-            String purlKey = "purl" + i;
-            String shaKey = "sha" + i;
-            query += "(a.purl = :" + purlKey + " AND a.sha256 = :" + shaKey + ")";
-            PurlSha purlSha = purlShas.get(i);
-            params.put(purlKey, purlSha.purl());
-            params.put(shaKey, purlSha.sha256());
         }
+        return ids;
+    }
 
-        return find(query, params).<Artifact> stream()
-                .collect(Collectors.toMap(Artifact::getPurlSha, Function.identity()));
+    /**
+     * Parses purls of up to {@code limit} artifacts that were created before the purl components were stored. Rows
+     * locked by another instance doing the same are skipped.
+     *
+     * @return number of parsed artifacts, zero when there is nothing left to parse
+     */
+    @SuppressWarnings("unchecked")
+    public static int parseUnparsedPurls(int limit) {
+        List<Object[]> rows = getEntityManager().createNativeQuery("""
+                SELECT id, purl
+                FROM Artifact
+                WHERE purlType IS NULL
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+                """).setParameter("limit", limit).getResultList();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Long[] ids = new Long[rows.size()];
+        List<PurlComponents> components = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ids[i] = ((Number) rows.get(i)[0]).longValue();
+            components.add(PurlComponents.parse((String) rows.get(i)[1]));
+        }
+        getEntityManager().createNativeQuery("""
+                UPDATE Artifact a
+                SET purlType = k.type, purlNamespace = k.namespace, purlName = k.name, purlVersion = k.version,
+                    purlVersionKey = k.versionKey, purlQualifiers = k.qualifiers
+                FROM unnest(
+                        CAST(:ids AS bigint[]),
+                        CAST(:types AS text[]),
+                        CAST(:namespaces AS text[]),
+                        CAST(:names AS text[]),
+                        CAST(:versions AS text[]),
+                        CAST(:versionKeys AS text[]),
+                        CAST(:qualifiers AS text[])
+                    ) AS k(id, type, namespace, name, version, versionKey, qualifiers)
+                WHERE a.id = k.id
+                """)
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, "Artifact")
+                .setParameter("ids", ids)
+                .setParameter("types", column(components, PurlComponents::type))
+                .setParameter("namespaces", column(components, PurlComponents::namespace))
+                .setParameter("names", column(components, PurlComponents::name))
+                .setParameter("versions", column(components, PurlComponents::version))
+                .setParameter("versionKeys", column(components, PurlComponents::versionKey))
+                .setParameter("qualifiers", column(components, PurlComponents::qualifiers))
+                .executeUpdate();
+        return rows.size();
+    }
+
+    static void forEachChunk(Set<PurlSha> purls, Consumer<List<PurlSha>> action) {
+        List<PurlSha> purlShas = new ArrayList<>(purls);
+        for (int from = 0; from < purlShas.size(); from += CHUNK_SIZE) {
+            action.accept(purlShas.subList(from, Math.min(from + CHUNK_SIZE, purlShas.size())));
+        }
+    }
+
+    static <T> String[] column(List<T> rows, Function<T, String> value) {
+        String[] column = new String[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            column[i] = value.apply(rows.get(i));
+        }
+        return column;
     }
 }
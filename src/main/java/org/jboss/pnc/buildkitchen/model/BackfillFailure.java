@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import io.quarkus.panache.common.Sort;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.ManyToOne;
+import jakarta.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PNC build that a {@link BackfillJob} failed to import. The failed builds are retried at the end of every run of the
+ * job and removed once imported.
+ */
+@Entity
+@IdClass(BackfillFailure.Key.class)
+public class BackfillFailure extends PanacheEntityBase {
+
+    @Id
+    @ManyToOne
+    public BackfillJob job;
+
+    /**
+     * ID of the build in PNC.
+     */
+    @Id
+    public String buildId;
+
+    /**
+     * Why the last attempt to import the build failed.
+     */
+    @NotNull
+    @Column(columnDefinition = "TEXT")
+    public String error;
+
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        public Long job;
+        public String buildId;
+    }
+
+    public static List<BackfillFailure> findByJob(long jobId) {
+        return list("job.id", Sort.by("buildId"), jobId);
+    }
+
+    public static List<String> findBuildIds(long jobId) {
+        return getEntityManager()
+                .createQuery(
+                        "SELECT f.buildId FROM BackfillFailure f WHERE f.job.id = :job ORDER BY f.buildId",
+                        String.class)
+                .setParameter("job", jobId)
+                .getResultList();
+    }
+
+    /**
+     * Records the outcome of importing the builds: failed builds are recorded with the error, the others are removed
+     * from the failed ones.
+     *
+     * @param failures errors of the builds that failed, by build id
+     * @return number of builds of the job failed so far
+     */
+    public static long record(
+            BackfillJob job,
+            Collection<String> buildIds,
+            Map<String, ? extends Exception> failures) {
+        delete("job = ?1 AND buildId IN ?2", job, buildIds);
+        failures.forEach((buildId, failure) -> {
+            BackfillFailure backfillFailure = new BackfillFailure();
+            backfillFailure.job = job;
+            backfillFailure.buildId = buildId;
+            backfillFailure.error = failure.toString();
+            backfillFailure.persist();
+        });
+        flush();
+        return count("job", job);
+    }
+}
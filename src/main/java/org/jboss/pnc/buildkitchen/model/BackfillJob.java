@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.LockModeType;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Import of historical PNC builds. The builds are imported in the order they finished, {@link BackfillJob#cursor} is
+ * the checkpoint the import resumes from. A running job is run by a single instance, the {@link BackfillJob#owner}
+ * holding its lease.
+ */
+@Entity
+public class BackfillJob extends PanacheEntity {
+
+    /**
+     * Import builds that finished at or after this time.
+     */
+    @NotNull
+    public Instant since;
+
+    /**
+     * Import builds that finished at or before this time. Unbounded if null.
+     */
+    public Instant until;
+
+    /**
+     * Additional RSQL query restricting the imported PNC builds.
+     */
+    @Column(columnDefinition = "TEXT")
+    public String query;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    public BackfillState state;
+
+    /**
+     * End time of the last imported build.
+     */
+    public Instant cursor;
+
+    /**
+     * Number of the processed builds that finished exactly at the {@link BackfillJob#cursor}. The import resumes with
+     * these builds, they are not counted as processed again.
+     */
+    public long processedAtCursor;
+
+    /**
+     * Number of builds imported or skipped as already imported.
+     */
+    public long processed;
+
+    /**
+     * Number of builds that failed to import, see {@link BackfillFailure}.
+     */
+    public long failed;
+
+    /**
+     * Estimated number of builds to be processed in total.
+     */
+    public long total;
+
+    /**
+     * When the job was last started or resumed.
+     */
+    public Instant resumedAt;
+
+    /**
+     * Value of {@link BackfillJob#processed} when the job was last started or resumed.
+     */
+    public long processedAtResume;
+
+    /**
+     * Instance running the job, null when no instance runs it.
+     */
+    public String owner;
+
+    /**
+     * Until when the {@link BackfillJob#owner} holds the job. The owner renews the lease with every checkpoint, another
+     * instance may take the job over once the lease expires.
+     */
+    public Instant leaseExpiry;
+
+    public static List<BackfillJob> findRunning() {
+        return list("state", BackfillState.RUNNING);
+    }
+
+    /**
+     * Finds the job and locks it until the end of the transaction.
+     */
+    public static BackfillJob findByIdForUpdate(long id) {
+        return findById(id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * Whether an instance other than {@code instance} holds an unexpired lease of the job.
+     */
+    public boolean isLeasedToOther(String instance) {
+        return owner != null && !owner.equals(instance) && leaseExpiry != null && leaseExpiry.isAfter(Instant.now());
+    }
+
+    /**
+     * Makes {@code instance} the owner of the job for the duration of the lease.
+     */
+    public void lease(String instance, Duration lease) {
+        owner = instance;
+        leaseExpiry = Instant.now().plus(lease);
+    }
+
+    /**
+     * Releases the job, if {@code instance} owns it.
+     */
+    public void release(String instance) {
+        if (instance.equals(owner)) {
+            owner = null;
+            leaseExpiry = null;
+        }
+    }
+
+    /**
+     * Releases all the jobs owned by the instance.
+     */
+    public static void releaseAll(String instance) {
+        update("owner = null, leaseExpiry = null WHERE owner = ?1", instance);
+    }
+
+    /**
+     * Builds processed per second since the job was last started or resumed.
+     */
+    public Double throughput() {
+        if (state != BackfillState.RUNNING || resumedAt == null) {
+            return null;
+        }
+        double seconds = Duration.between(resumedAt, Instant.now()).toMillis() / 1000.0;
+        return seconds > 0 ? (processed - processedAtResume) / seconds : null;
+    }
+
+    /**
+     * When the job is expected to finish at the current throughput.
+     */
+    public Instant estimatedCompletion() {
+        Double throughput = throughput();
+        if (throughput == null || throughput == 0) {
+            return null;
+        }
+        long remaining = Math.max(0, total - processed);
+        return Instant.now().plusSeconds((long) (remaining / throughput));
+    }
+}
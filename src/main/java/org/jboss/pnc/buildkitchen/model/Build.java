@@ -27,19 +27,25 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.jpa.HibernateHints;
 import org.jboss.pnc.api.constants.BuildGenerator;
+import org.jboss.pnc.buildkitchen.api.PurlSha;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Entity
 public class Build extends PanacheEntity {
 
     /**
-     * Recipe that was used to produce this build. Note: the recipe might have been updated since this build was
-     * produced.
+     * Recipe that was used to produce this build. Recipes are immutable, builds with the same recipe content share it.
      */
     @NotNull
     @ManyToOne
@@ -101,4 +107,49 @@ public class Build extends PanacheEntity {
                 .singleResultOptional();
     }
 
+    public static Set<String> importedPncBuildIds(Collection<String> buildIds) {
+        if (buildIds.isEmpty()) {
+            return Set.of();
+        }
+        return getEntityManager()
+                .createQuery(
+                        "SELECT b.buildId FROM Build b WHERE b.buildId IN :buildIds AND b.generator = :generator",
+                        String.class)
+                .setParameter("buildIds", buildIds)
+                .setParameter("generator", BuildGenerator.PNC)
+                .getResultStream()
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Associates the flushed build with its built artifacts given by id, in chunks of
+     * {@value BuildRecipe#ARTIFACT_CHUNK_SIZE} and without loading the artifacts. {@link #builtArtifacts} of this
+     * instance doesn't reflect the change.
+     *
+     * @return purls and checksums of the associated artifacts
+     */
+    public List<PurlSha> linkBuiltArtifacts(long[] artifactIds) {
+        List<PurlSha> linked = new ArrayList<>(artifactIds.length);
+        for (int from = 0; from < artifactIds.length; from += BuildRecipe.ARTIFACT_CHUNK_SIZE) {
+            int to = Math.min(from + BuildRecipe.ARTIFACT_CHUNK_SIZE, artifactIds.length);
+            Long[] chunk = Arrays.stream(artifactIds, from, to).boxed().toArray(Long[]::new);
+            List<Object[]> rows = getEntityManager().createNativeQuery("""
+                    WITH linked AS (
+                        INSERT INTO Build_Artifact (Build_id, builtArtifacts_id)
+                        SELECT :build, unnest(CAST(:artifacts AS bigint[]))
+                        ON CONFLICT DO NOTHING
+                        RETURNING builtArtifacts_id
+                    )
+                    SELECT a.purl, a.sha256
+                    FROM Artifact a
+                    JOIN linked l ON l.builtArtifacts_id = a.id
+                    """)
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                    .setParameter("build", id)
+                    .setParameter("artifacts", chunk)
+                    .getResultList();
+            rows.forEach(row -> linked.add(new PurlSha((String) row[0], (String) row[1])));
+        }
+        return linked;
+    }
 }
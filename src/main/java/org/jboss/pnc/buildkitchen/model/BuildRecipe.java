@@ -18,21 +18,37 @@
 package org.jboss.pnc.buildkitchen.model;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.panache.common.Parameters;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.TypedQuery;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.jpa.HibernateHints;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Entity
 public class BuildRecipe extends PanacheEntity {
 
+    static final int ARTIFACT_CHUNK_SIZE = 1_000;
+
+    private static final ReferenceIds<String> IDS = new ReferenceIds<>(10_000);
+
     /**
      * Source Code Management coordinates used in this build recipe.
      */
@@ -51,8 +67,8 @@ public class BuildRecipe extends PanacheEntity {
      * Script that is used for execution of the build recipe.
      */
     @NotNull
-    @Column(columnDefinition = "TEXT")
-    public String buildScript;
+    @ManyToOne(fetch = FetchType.LAZY)
+    public TextBlob buildScript;
 
     /**
      * How much memory is needed for executing the build recipe in bytes.
@@ -80,49 +96,352 @@ public class BuildRecipe extends PanacheEntity {
      * <p>
      * JBS specific.
      */
-    @Column(columnDefinition = "TEXT")
-    public String discrepancyWithUpstream;
+    @ManyToOne(fetch = FetchType.LAZY)
+    public TextBlob discrepancyWithUpstream;
+
+    /**
+     * SHA-256 of the recipe content, see {@link #contentHash(ScmInfo, String, Set, long)}. Null only for recipes
+     * created before the hash was introduced, until they are compacted.
+     */
+    @Column(unique = true)
+    public String contentHash;
 
-    public static List<BuildRecipe> findByScmInfo(ScmInfo scmInfo) {
+    /**
+     * Returns the recipe with the given content, creating it in the current transaction when it doesn't exist yet.
+     * Recipes are identified by their {@link #contentHash} and never change once created. Ids are cached by the hash
+     * once committed, so the recipe is looked up by the hash only the first time.
+     */
+    public static BuildRecipe getOrCreate(
+            ScmInfo scmInfo,
+            String buildScript,
+            Set<BuildTool> buildTools,
+            long memoryRequired) {
+        String contentHash = contentHash(scmInfo, buildScript, buildTools, memoryRequired);
+        Long id = IDS.get(contentHash, hash -> upsert(hash, scmInfo, buildScript, buildTools, memoryRequired));
+        return findByIdFetched(id);
+    }
+
+    /**
+     * Atomically creates the recipe with its build tools if no recipe with the hash exists and returns its id. Joins
+     * the current transaction, a recipe being created by a concurrent transaction is waited for.
+     */
+    static Long upsert(
+            String contentHash,
+            ScmInfo scmInfo,
+            String buildScript,
+            Set<BuildTool> buildTools,
+            long memoryRequired) {
+        return QuarkusTransaction.joiningExisting().call(() -> {
+            int inserted = getEntityManager().createNativeQuery("""
+                    INSERT INTO BuildRecipe (id, scmInfo_id, buildScript_hash, memoryRequired, contentHash)
+                    VALUES (nextval('BuildRecipe_SEQ'), :scmInfo, :buildScript, :memoryRequired, :contentHash)
+                    ON CONFLICT (contentHash) DO NOTHING
+                    """)
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                    .setParameter("scmInfo", scmInfo.id)
+                    .setParameter("buildScript", TextBlob.store(buildScript))
+                    .setParameter("memoryRequired", memoryRequired)
+                    .setParameter("contentHash", contentHash)
+                    .executeUpdate();
+            Long id = getEntityManager()
+                    .createQuery("SELECT r.id FROM BuildRecipe r WHERE r.contentHash = :contentHash", Long.class)
+                    .setParameter("contentHash", contentHash)
+                    .getSingleResult();
+            if (inserted > 0 && !buildTools.isEmpty()) {
+                getEntityManager().createNativeQuery("""
+                        INSERT INTO BuildRecipe_BuildTool (BuildRecipe_id, buildTools_id)
+                        SELECT :id, unnest(CAST(:buildTools AS bigint[]))
+                        """)
+                        .setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                        .setParameter("id", id)
+                        .setParameter(
+                                "buildTools",
+                                buildTools.stream().map(buildTool -> buildTool.id).toArray(Long[]::new))
+                        .executeUpdate();
+            }
+            return id;
+        });
+    }
+
+    /**
+     * Hash identifying the recipe content: the SCM information, memory, build tools and the build script.
+     */
+    static String contentHash(ScmInfo scmInfo, String buildScript, Set<BuildTool> buildTools, long memoryRequired) {
+        String toolIds = buildTools.stream()
+                .map(buildTool -> buildTool.id)
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+        String content = scmInfo.id + "\n" + memoryRequired + "\n" + toolIds + "\n" + buildScript;
+        return TextBlob.sha256(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stores content hashes of up to {@code limit} recipes created before recipes were identified by the hash. A recipe
+     * with the same content as an already hashed one is merged into it: its builds and shaded dependencies are moved
+     * over and the recipe is deleted. The recipes are locked, recipes locked by a concurrent compaction are skipped.
+     * <p>
+     * Storing the hash fails on the unique constraint when a recipe with the same content is hashed or created by a
+     * concurrent transaction, the batch is then to be retried in a new transaction, which merges the recipe into it.
+     */
+    public static Compaction compact(int limit) {
+        List<?> rows = getEntityManager().createNativeQuery("""
+                SELECT id
+                FROM BuildRecipe
+                WHERE contentHash IS NULL
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+                """).setParameter("limit", limit).getResultList();
+        return compact(rows.stream().map(id -> ((Number) id).longValue()).toList());
+    }
+
+    static Compaction compact(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new Compaction(0, 0, List.of());
+        }
+        List<BuildRecipe> recipes = find("""
+                FROM BuildRecipe r
+                JOIN FETCH r.scmInfo
+                JOIN FETCH r.buildScript
+                LEFT JOIN FETCH r.buildTools
+                WHERE r.id IN :ids
+                ORDER BY r.id
+                """, Parameters.with("ids", ids)).list();
+        Map<BuildRecipe, String> hashes = new LinkedHashMap<>();
+        recipes.forEach(
+                r -> hashes.put(r, contentHash(r.scmInfo, r.buildScript.text(), r.buildTools, r.memoryRequired)));
+
+        Map<String, BuildRecipe> survivors = new HashMap<>();
+        BuildRecipe.<BuildRecipe> list("contentHash IN ?1", hashes.values())
+                .forEach(survivor -> survivors.put(survivor.contentHash, survivor));
+        int merged = 0;
+        List<Build> movedBuilds = new ArrayList<>();
+        for (Map.Entry<BuildRecipe, String> entry : hashes.entrySet()) {
+            BuildRecipe recipe = entry.getKey();
+            BuildRecipe survivor = survivors.putIfAbsent(entry.getValue(), recipe);
+            if (survivor == null) {
+                recipe.contentHash = entry.getValue();
+            } else {
+                movedBuilds.addAll(mergeInto(recipe, survivor));
+                merged++;
+            }
+        }
+        // hashes are stored now, so that a conflict fails the batch here rather than on commit
+        flush();
+        return new Compaction(recipes.size(), merged, movedBuilds);
+    }
+
+    /**
+     * Merges the duplicate recipe into the survivor.
+     *
+     * @return the builds moved to the survivor, as loaded before the move
+     */
+    private static List<Build> mergeInto(BuildRecipe duplicate, BuildRecipe survivor) {
+        if (survivor.discrepancyWithUpstream == null) {
+            survivor.discrepancyWithUpstream = duplicate.discrepancyWithUpstream;
+        }
+        List<Build> builds = Build.list("recipe", duplicate);
+        getEntityManager().detach(duplicate);
+        for (MergeStatement statement : List.of(
+                new MergeStatement("Build", "UPDATE Build SET recipe_id = :survivor WHERE recipe_id = :duplicate"),
+                new MergeStatement(
+                        "BuildRecipe_ShadedArtifact",
+                        "UPDATE BuildRecipe_ShadedArtifact SET BuildRecipe_id = :survivor WHERE BuildRecipe_id = :duplicate"),
+                new MergeStatement(
+                        "BuildRecipe_BuildTool",
+                        "DELETE FROM BuildRecipe_BuildTool WHERE BuildRecipe_id = :duplicate"),
+                new MergeStatement("BuildRecipe", "DELETE FROM BuildRecipe WHERE id = :duplicate"))) {
+            getEntityManager().createNativeQuery(statement.sql())
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, statement.table())
+                    .setParameter("survivor", survivor.id)
+                    .setParameter("duplicate", duplicate.id)
+                    .executeUpdate();
+        }
+        return builds;
+    }
+
+    /**
+     * Result of a {@link #compact(int)} batch.
+     *
+     * @param processed number of recipes without hash that were processed
+     * @param merged number of those that were merged into another recipe
+     * @param movedBuilds builds of the merged recipes, lookups finding them have to be invalidated
+     */
+    public record Compaction(int processed, int merged, List<Build> movedBuilds) {
+    }
+
+    private record MergeStatement(String table, String sql) {
+    }
+
+    /**
+     * Finds the recipe with its SCM information, build script and build tools loaded in a single query.
+     */
+    public static BuildRecipe findByIdFetched(long id) {
         return find("""
                 FROM BuildRecipe r
-                WHERE r.scmInfo = :scmInfo
-                """, Parameters.with("scmInfo", scmInfo)).list();
+                JOIN FETCH r.scmInfo
+                JOIN FETCH r.buildScript
+                LEFT JOIN FETCH r.buildTools
+                WHERE r.id = :id
+                """, Parameters.with("id", id)).firstResult();
     }
 
+    /**
+     * Finds recipes with SCM information matching the URL (either build or origin) and revision (either build commit,
+     * origin commit or origin revision), looked up through {@link ScmKey}.
+     */
     public static List<BuildRecipe> findByScmInfo(String url, String revision) {
+        return byScmRevision(url, revision).list();
+    }
+
+    public static RecipeQuery byScmRevision(String url, String revision) {
         String normalizedUrl = ScmInfo.normalizeUrl(url);
-        return find("""
-                FROM BuildRecipe r
-                WHERE (
-                       r.scmInfo.buildScmUrl = :nurl
-                    OR r.scmInfo.originScmUrl = :nurl
-                  ) AND (
-                        r.scmInfo.buildCommitId = :revision
-                     OR r.scmInfo.originCommitId = :revision
-                     OR r.scmInfo.originRevision = :revision
+        return new RecipeQuery("""
+                r.scmInfo.id IN (
+                    SELECT k.scmInfo.id
+                    FROM ScmKey k
+                    WHERE k.url = :nurl AND k.revision = :revision
                   )
-                """, Parameters.with("nurl", normalizedUrl).and("revision", revision)).list();
+                """, Parameters.with("nurl", normalizedUrl).and("revision", revision));
     }
 
     public static List<BuildRecipe> findByPurl(String purl) {
-        return find("""
-                FROM BuildRecipe r
-                JOIN r.builds b
+        return byPurl(purl).list();
+    }
+
+    public static RecipeQuery byPurl(String purl) {
+        return new RecipeQuery("""
+                r.id IN (
+                    SELECT b.recipe.id
+                    FROM Build b
+                    JOIN b.builtArtifacts a
+                    WHERE a.purl = :purl
+                  )
+                """, Parameters.with("purl", purl));
+    }
+
+    public static RecipeQuery bySha256(String sha256) {
+        return new RecipeQuery("""
+                r.id IN (
+                    SELECT b.recipe.id
+                    FROM Build b
+                    JOIN b.builtArtifacts a
+                    WHERE a.sha256 = :sha256
+                  )
+                """, Parameters.with("sha256", sha256));
+    }
+
+    /**
+     * Finds recipes of builds that produced artifacts with any of the given purls. The purls are queried in chunks of
+     * {@value #ARTIFACT_CHUNK_SIZE}.
+     *
+     * @return recipes by purl, purls without any recipe are missing
+     */
+    public static Map<String, List<BuildRecipe>> findByPurls(Collection<String> purls) {
+        return findByArtifacts("purl", purls);
+    }
+
+    /**
+     * Finds recipes of builds that produced artifacts with any of the given checksums. The checksums are queried in
+     * chunks of {@value #ARTIFACT_CHUNK_SIZE}.
+     *
+     * @return recipes by checksum, checksums without any recipe are missing
+     */
+    public static Map<String, List<BuildRecipe>> findBySha256s(Collection<String> sha256s) {
+        return findByArtifacts("sha256", sha256s);
+    }
+
+    private static Map<String, List<BuildRecipe>> findByArtifacts(String attribute, Collection<String> values) {
+        List<String> distinctValues = List.copyOf(new LinkedHashSet<>(values));
+        Map<String, Set<BuildRecipe>> recipes = new HashMap<>();
+        for (int from = 0; from < distinctValues.size(); from += ARTIFACT_CHUNK_SIZE) {
+            List<String> chunk = distinctValues
+                    .subList(from, Math.min(from + ARTIFACT_CHUNK_SIZE, distinctValues.size()));
+            // rows repeat for every build and build tool, the recipe instances are the same within the session
+            List<Object[]> rows = getEntityManager().createQuery("""
+                    SELECT a.%1$s, r
+                    FROM Build b
+                    JOIN b.builtArtifacts a
+                    JOIN b.recipe r
+                    JOIN FETCH r.scmInfo
+                    JOIN FETCH r.buildScript
+                    LEFT JOIN FETCH r.buildTools
+                    WHERE a.%1$s IN :values
+                    """.formatted(attribute), Object[].class).setParameter("values", chunk).getResultList();
+            for (Object[] row : rows) {
+                recipes.computeIfAbsent((String) row[0], k -> new LinkedHashSet<>()).add((BuildRecipe) row[1]);
+            }
+        }
+        Map<String, List<BuildRecipe>> result = new HashMap<>();
+        recipes.forEach((value, valueRecipes) -> result.put(value, new ArrayList<>(valueRecipes)));
+        return result;
+    }
+
+    /**
+     * Finds recipes of builds that produced any version of the package, optionally limited to a version range. Versions
+     * are compared by their {@link PurlComponents#versionKey(String) keys}.
+     *
+     * @param minVersion lowest version, inclusive, or null
+     * @param maxVersion highest version, inclusive, or null
+     * @return recipes by purl ordered by version, purls without any recipe are missing
+     */
+    public static Map<String, List<BuildRecipe>> findByPackage(
+            String type,
+            String namespace,
+            String name,
+            String minVersion,
+            String maxVersion) {
+        StringBuilder query = new StringBuilder("""
+                SELECT a.purl, r
+                FROM Build b
                 JOIN b.builtArtifacts a
-                WHERE a.purl = :purl
-                """, Parameters.with("purl", purl)).list();
+                JOIN b.recipe r
+                JOIN FETCH r.scmInfo
+                JOIN FETCH r.buildScript
+                LEFT JOIN FETCH r.buildTools
+                WHERE a.purlType = :type AND a.purlNamespace = :namespace AND a.purlName = :name
+                """);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("type", type);
+        parameters.put("namespace", namespace == null ? "" : namespace);
+        parameters.put("name", name);
+        if (minVersion != null) {
+            query.append("AND a.purlVersionKey >= :minKey\n");
+            parameters.put("minKey", PurlComponents.versionKey(minVersion));
+        }
+        if (maxVersion != null) {
+            query.append("AND a.purlVersionKey <= :maxKey\n");
+            parameters.put("maxKey", PurlComponents.versionKey(maxVersion));
+        }
+        query.append("ORDER BY a.purlVersionKey, a.purl");
+
+        TypedQuery<Object[]> typedQuery = getEntityManager().createQuery(query.toString(), Object[].class);
+        parameters.forEach(typedQuery::setParameter);
+        Map<String, Set<BuildRecipe>> recipes = new LinkedHashMap<>();
+        for (Object[] row : typedQuery.getResultList()) {
+            recipes.computeIfAbsent((String) row[0], k -> new LinkedHashSet<>()).add((BuildRecipe) row[1]);
+        }
+        Map<String, List<BuildRecipe>> result = new LinkedHashMap<>();
+        recipes.forEach((purl, purlRecipes) -> result.put(purl, new ArrayList<>(purlRecipes)));
+        return result;
     }
 
     public static List<BuildRecipe> findByScmUrlAndVersion(String url, String version) {
+        return byScmUrlAndVersion(url, version).list();
+    }
+
+    public static RecipeQuery byScmUrlAndVersion(String url, String version) {
         String normalizedUrl = ScmInfo.normalizeUrl(url);
-        return find("""
-                FROM BuildRecipe r
-                JOIN r.builds b
-                WHERE (
+        return new RecipeQuery("""
+                (
                        r.scmInfo.buildScmUrl = :nurl
                     OR r.scmInfo.originScmUrl = :nurl
-                  ) AND b.versionGenerated = :version
-                """, Parameters.with("nurl", normalizedUrl).and("version", version)).list();
+                  ) AND r.id IN (
+                    SELECT b.recipe.id
+                    FROM Build b
+                    WHERE b.versionGenerated = :version
+                  )
+                """, Parameters.with("nurl", normalizedUrl).and("version", version));
     }
 }
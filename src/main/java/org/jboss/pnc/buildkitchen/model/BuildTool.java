@@ -18,15 +18,24 @@
 package org.jboss.pnc.buildkitchen.model;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
-import io.quarkus.panache.common.Parameters;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.jpa.HibernateHints;
 
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.List;
 
 @Entity
+@Cacheable
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "identifier", "version" }))
 public class BuildTool extends PanacheEntity {
 
+    private static final ReferenceIds<List<String>> IDS = new ReferenceIds<>(1_000);
+
     /**
      * Name of the tool.
      * <p>
@@ -41,21 +50,37 @@ public class BuildTool extends PanacheEntity {
     @NotNull
     public String version;
 
+    /**
+     * Returns the build tool, creating it in the current transaction when it doesn't exist yet. Ids of the build tools
+     * are cached once committed, so the natural key is looked up in the database only the first time.
+     */
     public static BuildTool getOrCreate(String identifier, String version) {
-        Optional<BuildTool> entity = find("""
-                FROM BuildTool bt
-                WHERE
-                        bt.identifier = :identifier
-                    AND bt.version = :version
-                """, Parameters.with("identifier", identifier).and("version", version)).singleResultOptional();
-        return entity.orElseGet(() -> createNew(identifier, version));
+        Long id = IDS.get(Arrays.asList(identifier, version), key -> upsert(identifier, version));
+        return findById(id);
     }
 
-    public static BuildTool createNew(String identifier, String version) {
-        BuildTool buildTool = new BuildTool();
-        buildTool.identifier = identifier;
-        buildTool.version = version;
-        persist(buildTool);
-        return buildTool;
+    /**
+     * Atomically creates the build tool if it doesn't exist and returns its id. Joins the current transaction, a build
+     * tool being created by a concurrent transaction is waited for.
+     */
+    static Long upsert(String identifier, String version) {
+        return QuarkusTransaction.joiningExisting().call(() -> {
+            getEntityManager().createNativeQuery("""
+                    INSERT INTO BuildTool (id, identifier, version)
+                    VALUES (nextval('BuildTool_SEQ'), :identifier, :version)
+                    ON CONFLICT (identifier, version) DO NOTHING
+                    """)
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                    .setParameter("identifier", identifier)
+                    .setParameter("version", version)
+                    .executeUpdate();
+            return getEntityManager()
+                    .createQuery(
+                            "SELECT bt.id FROM BuildTool bt WHERE bt.identifier = :identifier AND bt.version = :version",
+                            Long.class)
+                    .setParameter("identifier", identifier)
+                    .setParameter("version", version)
+                    .getSingleResult();
+        });
     }
 }
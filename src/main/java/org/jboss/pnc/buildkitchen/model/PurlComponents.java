@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import com.github.packageurl.MalformedPackageURLException;
+import com.github.packageurl.PackageURL;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Components of a package URL, stored with the {@link Artifact} so that artifacts can be looked up by package and
+ * version range.
+ *
+ * @param namespace namespace or empty string when the package has none, so that it can be compared with equality
+ * @param versionKey version converted to a key that sorts numerically, see {@link #versionKey(String)}
+ * @param qualifiers qualifiers sorted by key and joined as in the purl, null when there are none
+ */
+public record PurlComponents(
+        String type,
+        String namespace,
+        String name,
+        String version,
+        String versionKey,
+        String qualifiers) {
+
+    /**
+     * Stored for artifacts with invalid purl, to tell them from artifacts that weren't parsed yet.
+     */
+    public static final PurlComponents UNPARSEABLE = new PurlComponents("", "", "", null, null, null);
+
+    /**
+     * Largest length prefix of numeric segments, the prefix has two digits.
+     */
+    private static final int MAX_LENGTH = 99;
+
+    public static PurlComponents parse(String purl) {
+        PackageURL packageUrl;
+        try {
+            packageUrl = new PackageURL(purl);
+        } catch (MalformedPackageURLException | RuntimeException ex) {
+            return UNPARSEABLE;
+        }
+        Map<String, String> qualifiers = packageUrl.getQualifiers();
+        return new PurlComponents(
+                packageUrl.getType(),
+                packageUrl.getNamespace() == null ? "" : packageUrl.getNamespace(),
+                packageUrl.getName(),
+                packageUrl.getVersion(),
+                versionKey(packageUrl.getVersion()),
+                qualifiers == null || qualifiers.isEmpty() ? null
+                        : new TreeMap<>(qualifiers).entrySet()
+                                .stream()
+                                .map(e -> e.getKey() + "=" + e.getValue())
+                                .collect(Collectors.joining("&")));
+    }
+
+    /**
+     * Converts the version to a key whose byte order follows the version order. The version is split into numeric and
+     * alphabetic segments, letters are lower-cased and numbers are stripped of leading zeros and prefixed with their
+     * two-digit length, so that a longer number sorts after a shorter one whatever its size, e.g.
+     * {@code 4.1.100.Final-redhat-00001} becomes {@code 014.011.03100.final.redhat.011}. Numbers of more than 99 digits
+     * share the prefix 99 and are compared as text. Only ASCII digits and letters form segments, as in the
+     * {@code V10} migration that computes the same keys in SQL, other characters are separators.
+     * <p>
+     * Unlike in Maven, qualified versions sort after the version they qualify, i.e. {@code 1.0-alpha} is after
+     * {@code 1.0}.
+     */
+    public static String versionKey(String version) {
+        if (version == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(version.length() * 2);
+        int i = 0;
+        while (i < version.length()) {
+            char c = version.charAt(i);
+            int start = i;
+            if (isDigit(c)) {
+                while (i < version.length() && isDigit(version.charAt(i))) {
+                    i++;
+                }
+                while (start < i && version.charAt(start) == '0') {
+                    start++;
+                }
+                int length = Math.min(i - start, MAX_LENGTH);
+                appendSegment(key, length < 10 ? "0" + length : Integer.toString(length));
+                key.append(version, start, i);
+            } else if (isLetter(c)) {
+                while (i < version.length() && isLetter(version.charAt(i))) {
+                    i++;
+                }
+                appendSegment(key, version.substring(start, i).toLowerCase(Locale.ROOT));
+            } else { // separator
+                i++;
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static void appendSegment(StringBuilder key, String segment) {
+        if (!key.isEmpty()) {
+            key.append('.');
+        }
+        key.append(segment);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+/**
+ * Query spaces declared by native statements through {@link org.hibernate.jpa.HibernateHints#HINT_NATIVE_SPACES}.
+ * Hibernate can't tell which tables a native statement modifies and evicts the whole second-level cache after one that
+ * doesn't declare them. Updates and deletes declare their table.
+ */
+final class QuerySpaces {
+
+    /**
+     * Declared by inserts that skip existing rows. They can't make a cached entity stale, so no region is evicted.
+     */
+    static final String NEW_ROWS = "new-rows";
+
+    private QuerySpaces() {
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheQuery;
+import io.quarkus.panache.common.Parameters;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup of recipes by a condition on the recipe {@code r}. The recipes are loaded together with their SCM information,
+ * build script and build tools, either all at once or by pages.
+ */
+public class RecipeQuery {
+
+    private static final String FETCH_RECIPES = """
+            FROM BuildRecipe r
+            JOIN FETCH r.scmInfo
+            JOIN FETCH r.buildScript
+            LEFT JOIN FETCH r.buildTools
+            """;
+
+    private final String condition;
+
+    private final Parameters parameters;
+
+    RecipeQuery(String condition, Parameters parameters) {
+        this.condition = condition;
+        this.parameters = parameters;
+    }
+
+    public List<BuildRecipe> list() {
+        PanacheQuery<BuildRecipe> query = BuildRecipe.find(FETCH_RECIPES + "WHERE " + condition, parameters);
+        return query.list();
+    }
+
+    /**
+     * Returns a page of recipes ordered by id. The ids of the page are selected first, so that the limit applies to the
+     * recipes and not to the rows of the fetched build tools.
+     *
+     * @param after id of the last recipe of the previous page, null for the first page
+     */
+    public List<BuildRecipe> page(Long after, int limit) {
+        TypedQuery<Long> idQuery = BuildRecipe.getEntityManager()
+                .createQuery(
+                        "SELECT r.id FROM BuildRecipe r WHERE (" + condition + ") AND r.id > :after ORDER BY r.id",
+                        Long.class)
+                .setParameter("after", after == null ? 0L : after)
+                .setMaxResults(limit);
+        for (Map.Entry<String, Object> parameter : parameters.map().entrySet()) {
+            idQuery.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        List<Long> ids = idQuery.getResultList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        PanacheQuery<BuildRecipe> query = BuildRecipe
+                .find(FETCH_RECIPES + "WHERE r.id IN :ids ORDER BY r.id", Parameters.with("ids", ids));
+        return query.list();
+    }
+}
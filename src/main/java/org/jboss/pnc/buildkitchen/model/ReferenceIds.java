@@ -0,0 +1,78 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.quarkus.arc.Arc;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.function.Function;
+
+/**
+ * Ids of reference data by their natural key. Reference data are created in the transaction of the caller, so that an
+ * import doesn't hold a second database connection while its own transaction is suspended. The id of a created row is
+ * therefore cached only once the transaction commits, the row doesn't exist should it roll back.
+ */
+final class ReferenceIds<K> {
+
+    private final Cache<K, Long> ids;
+
+    ReferenceIds(long maximumSize) {
+        ids = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Returns the cached id of the key, or the id returned by the upsert, which is cached once the current transaction
+     * commits. It is not cached at all when the transaction is already bound to roll back.
+     */
+    Long get(K key, Function<K, Long> upsert) {
+        Long id = ids.getIfPresent(key);
+        if (id != null) {
+            return id;
+        }
+        Long upserted = upsert.apply(key);
+        TransactionSynchronizationRegistry transactionRegistry = Arc.container()
+                .instance(TransactionSynchronizationRegistry.class)
+                .get();
+        int status = transactionRegistry.getTransactionStatus();
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            ids.put(key, upserted);
+            return upserted;
+        }
+        if (status != Status.STATUS_ACTIVE) {
+            // e.g. marked for rollback, the row may never exist
+            return upserted;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    ids.put(key, upserted);
+                }
+            }
+        });
+        return upserted;
+    }
+}
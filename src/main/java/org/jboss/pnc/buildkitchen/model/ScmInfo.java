@@ -18,22 +18,26 @@
 package org.jboss.pnc.buildkitchen.model;
 
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
-import io.quarkus.panache.common.Parameters;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import jakarta.validation.constraints.NotNull;
-import org.jboss.pnc.common.util.StringUtils;
-import org.jboss.pnc.common.util.UrlUtils;
+import org.hibernate.jpa.HibernateHints;
 
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.List;
 
 @Entity
+@Cacheable
 @Table(
         uniqueConstraints = @UniqueConstraint(
                 columnNames = { "buildScmUrl", "buildCommitId", "originScmUrl", "originCommitId" }))
 public class ScmInfo extends PanacheEntity {
 
+    private static final ReferenceIds<List<String>> IDS = new ReferenceIds<>(10_000);
+
     /**
      * Normalized URL of sources that were actually used for running the build.
      * <p>
@@ -96,46 +100,68 @@ public class ScmInfo extends PanacheEntity {
         this.originScmUrl = normalizeUrl(originScmUrl);
     }
 
+    /**
+     * Returns the canonical form of the SCM URL, see {@link ScmUrls}.
+     */
     public static String normalizeUrl(String url) {
         if (url == null) return null;
-        return StringUtils.stripSuffix(UrlUtils.keepHostAndPathOnly(url), ".git");
+        return ScmUrls.normalize(url);
     }
 
+    /**
+     * Returns the SCM information, creating it in the current transaction when it doesn't exist yet. Ids are cached by
+     * the natural key once committed, so it is looked up in the database only the first time.
+     */
     public static ScmInfo getOrCreate(
             String buildScmUrl,
             String buildCommitId,
             String originScmUrl,
             String originCommitId,
             String originRevision) {
-        String normalizedBuildScmUrl = ScmInfo.normalizeUrl(buildScmUrl);
-        String normalizedOriginScmUrl = ScmInfo.normalizeUrl(originScmUrl);
-        Optional<ScmInfo> entity = find(
-                """
-                        FROM ScmInfo scm
-                        WHERE
-                                scm.buildScmUrl = :buildScmUrl
-                            AND scm.buildCommitId = :buildCommitId
-                            AND scm.originScmUrl = :originScmUrl
-                            AND scm.originCommitId = :originCommitId
-                        """,
-                Parameters.with("buildScmUrl", normalizedBuildScmUrl)
-                        .and("buildCommitId", buildCommitId)
-                        .and("originScmUrl", normalizedOriginScmUrl)
-                        .and("originCommitId", originCommitId))
-                .singleResultOptional();
-        return entity
-                .orElseGet(() -> createNew(buildScmUrl, buildCommitId, originScmUrl, originCommitId, originRevision));
+        ScmInfo scmInfo = new ScmInfo(buildScmUrl, buildCommitId, originScmUrl, originCommitId, originRevision);
+        List<String> naturalKey = Arrays
+                .asList(scmInfo.buildScmUrl, scmInfo.buildCommitId, scmInfo.originScmUrl, scmInfo.originCommitId);
+        Long id = IDS.get(naturalKey, key -> upsert(scmInfo));
+        return findById(id);
     }
 
-    public static ScmInfo createNew(
-            String buildScmUrl,
-            String buildCommitId,
-            String originScmUrl,
-            String originCommitId,
-            String originRevision) {
-        ScmInfo scmInfo = new ScmInfo(buildScmUrl, buildCommitId, originScmUrl, originCommitId, originRevision);
-        persist(scmInfo);
-        return scmInfo;
+    /**
+     * Atomically creates the SCM information together with its {@link ScmKey lookup keys} if it doesn't exist and returns
+     * its id. Joins the current transaction, SCM information being created by a concurrent transaction is waited for.
+     */
+    static Long upsert(ScmInfo scmInfo) {
+        return QuarkusTransaction.joiningExisting().call(() -> {
+            int inserted = getEntityManager().createNativeQuery("""
+                    INSERT INTO ScmInfo (id, buildScmUrl, buildCommitId, originScmUrl, originCommitId, originRevision)
+                    VALUES (nextval('ScmInfo_SEQ'), :buildScmUrl, :buildCommitId, :originScmUrl, :originCommitId, :originRevision)
+                    ON CONFLICT (buildScmUrl, buildCommitId, originScmUrl, originCommitId) DO NOTHING
+                    """)
+                    .setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                    .setParameter("buildScmUrl", scmInfo.buildScmUrl)
+                    .setParameter("buildCommitId", scmInfo.buildCommitId)
+                    .setParameter("originScmUrl", scmInfo.originScmUrl)
+                    .setParameter("originCommitId", scmInfo.originCommitId)
+                    .setParameter("originRevision", scmInfo.originRevision)
+                    .executeUpdate();
+            Long id = getEntityManager().createQuery("""
+                    SELECT scm.id
+                    FROM ScmInfo scm
+                    WHERE
+                            scm.buildScmUrl = :buildScmUrl
+                        AND scm.buildCommitId = :buildCommitId
+                        AND scm.originScmUrl = :originScmUrl
+                        AND scm.originCommitId = :originCommitId
+                    """, Long.class)
+                    .setParameter("buildScmUrl", scmInfo.buildScmUrl)
+                    .setParameter("buildCommitId", scmInfo.buildCommitId)
+                    .setParameter("originScmUrl", scmInfo.originScmUrl)
+                    .setParameter("originCommitId", scmInfo.originCommitId)
+                    .getSingleResult();
+            if (inserted > 0) {
+                ScmKey.createFor(id);
+            }
+            return id;
+        });
     }
 
 }
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.ManyToOne;
+import lombok.EqualsAndHashCode;
+import org.hibernate.jpa.HibernateHints;
+
+import java.io.Serializable;
+
+/**
+ * Denormalized lookup key of {@link ScmInfo}. There is a row for every combination of its URLs and revisions, so
+ * looking up SCM information by URL and any of its revisions is a single index probe.
+ * <p>
+ * The keys are created together with the SCM information in {@link ScmInfo#upsert(ScmInfo)}.
+ */
+@Entity
+@IdClass(ScmKey.Key.class)
+public class ScmKey extends PanacheEntityBase {
+
+    /**
+     * Normalized URL, either {@link ScmInfo#buildScmUrl} or {@link ScmInfo#originScmUrl}.
+     */
+    @Id
+    public String url;
+
+    /**
+     * Revision, either {@link ScmInfo#buildCommitId}, {@link ScmInfo#originCommitId} or {@link ScmInfo#originRevision}.
+     */
+    @Id
+    public String revision;
+
+    @Id
+    @ManyToOne
+    public ScmInfo scmInfo;
+
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        public String url;
+        public String revision;
+        public Long scmInfo;
+    }
+
+    /**
+     * Creates the keys of the SCM information with given id.
+     */
+    static void createFor(Long scmInfoId) {
+        getEntityManager().createNativeQuery("""
+                INSERT INTO ScmKey (url, revision, scmInfo_id)
+                SELECT u.url, r.revision, scm.id
+                FROM ScmInfo scm
+                CROSS JOIN LATERAL (VALUES (scm.buildScmUrl), (scm.originScmUrl)) u(url)
+                CROSS JOIN LATERAL (VALUES (scm.buildCommitId), (scm.originCommitId), (scm.originRevision)) r(revision)
+                WHERE scm.id = :id AND r.revision IS NOT NULL
+                ON CONFLICT DO NOTHING
+                """).setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                .setParameter("id", scmInfoId)
+                .executeUpdate();
+    }
+}
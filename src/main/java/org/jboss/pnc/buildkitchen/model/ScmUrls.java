@@ -0,0 +1,164 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Canonical form of SCM URLs, {@code host/path}, used to store and look up {@link ScmInfo}. The scheme, user info,
+ * port, query and fragment are dropped, the host is lower-cased and the trailing slashes and {@code .git} suffix are
+ * removed from the path. The SSH form {@code git@host:path} is canonicalized as if it was {@code ssh://git@host/path}.
+ * E.g. {@code https://GitHub.com/project-ncl/pnc.git/} and {@code git@github.com:project-ncl/pnc.git} are both
+ * {@code github.com/project-ncl/pnc}.
+ */
+final class ScmUrls {
+
+    /**
+     * Canonical URLs by the raw ones. Imports and lookups see a few thousand repositories over and over again.
+     */
+    private static final Cache<String, String> CANONICAL = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    private ScmUrls() {
+    }
+
+    /**
+     * Returns the canonical form of the URL, remembered for the recently seen URLs.
+     */
+    static String normalize(String url) {
+        return CANONICAL.get(url, ScmUrls::canonicalize);
+    }
+
+    /**
+     * Computes the canonical form of the URL. The URL is scanned once, without regular expressions, and only the
+     * result is allocated.
+     */
+    static String canonicalize(String url) {
+        int start = 0;
+        int end = url.length();
+        while (start < end && Character.isWhitespace(url.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(url.charAt(end - 1))) {
+            end--;
+        }
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+
+        int firstSlash = indexOf(url, '/', start, end);
+        int colon = indexOf(url, ':', start, firstSlash);
+        int authorityStart = start;
+        int authorityEnd;
+        int pathStart;
+        if (colon < firstSlash && url.startsWith("//", colon + 1)) {
+            // scheme://[user@]host[:port]/path
+            authorityStart = colon + 3;
+            authorityEnd = indexOf(url, '/', authorityStart, end);
+            pathStart = authorityEnd;
+        } else if (colon < firstSlash && !isPort(url, colon + 1, firstSlash, end)) {
+            // [user@]host:path
+            authorityEnd = colon;
+            pathStart = colon + 1;
+        } else {
+            // [user@]host[:port]/path
+            authorityEnd = firstSlash;
+            pathStart = firstSlash;
+        }
+
+        int hostStart = lastIndexOf(url, '@', authorityStart, authorityEnd) + 1;
+        if (hostStart == 0) {
+            hostStart = authorityStart;
+        }
+        int hostEnd;
+        if (hostStart < authorityEnd && url.charAt(hostStart) == '[') {
+            // IPv6 literal, the colons are part of the host
+            hostEnd = Math.min(indexOf(url, ']', hostStart, authorityEnd) + 1, authorityEnd);
+        } else {
+            hostEnd = indexOf(url, ':', hostStart, authorityEnd);
+        }
+
+        while (pathStart < end && url.charAt(pathStart) == '/') {
+            pathStart++;
+        }
+        while (end > pathStart && url.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (end - pathStart >= 4 && url.startsWith(".git", end - 4)) {
+            end -= 4;
+        }
+
+        int hostLength = hostEnd - hostStart;
+        int pathLength = end - pathStart;
+        char[] canonical = new char[pathLength > 0 ? hostLength + 1 + pathLength : hostLength];
+        for (int i = 0; i < hostLength; i++) {
+            char c = url.charAt(hostStart + i);
+            canonical[i] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        if (pathLength > 0) {
+            canonical[hostLength] = '/';
+            url.getChars(pathStart, end, canonical, hostLength + 1);
+        }
+        return new String(canonical);
+    }
+
+    /**
+     * Checks whether the characters between the colon and the first slash are a port rather than the start of the path
+     * of the SSH form.
+     */
+    private static boolean isPort(String url, int from, int to, int end) {
+        if (from == to || to == end) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = url.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the character in the range, or {@code to} when there is none.
+     */
+    private static int indexOf(String url, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (url.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Returns the last index of the character in the range, or -1 when there is none.
+     */
+    private static int lastIndexOf(String url, char c, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (url.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
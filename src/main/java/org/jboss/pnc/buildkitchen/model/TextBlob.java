@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Transient;
+import jakarta.validation.constraints.NotNull;
+import org.hibernate.jpa.HibernateHints;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Text stored once per distinct content. Recipes reference large texts, like build scripts and discrepancies with
+ * upstream, by the hash of the text, so that recipes sharing a text share the row and the text is loaded only when
+ * accessed.
+ */
+@Entity
+public class TextBlob extends PanacheEntityBase {
+
+    /**
+     * SHA-256 of the UTF-8 encoded text.
+     */
+    @Id
+    public String hash;
+
+    /**
+     * The UTF-8 encoded text, deflate compressed when {@link #deflated}.
+     */
+    @NotNull
+    public byte[] content;
+
+    /**
+     * Whether the content is deflate compressed. Texts moved from the recipe table by the migration are stored as they
+     * were, compressed by Postgres.
+     */
+    public boolean deflated;
+
+    @Transient
+    private String text;
+
+    /**
+     * Returns the text, decompressing it on first access.
+     */
+    public String text() {
+        if (text == null) {
+            text = new String(deflated ? inflate(content) : content, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    /**
+     * Stores the text unless a blob with the same content exists and returns its hash.
+     */
+    static String store(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(bytes);
+        getEntityManager().createNativeQuery("""
+                INSERT INTO TextBlob (hash, content, deflated)
+                VALUES (:hash, :content, true)
+                ON CONFLICT (hash) DO NOTHING
+                """)
+                .setHint(HibernateHints.HINT_NATIVE_SPACES, QuerySpaces.NEW_ROWS)
+                .setParameter("hash", hash)
+                .setParameter("content", deflate(bytes))
+                .executeUpdate();
+        return hash;
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] bytes) {
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return inflater.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
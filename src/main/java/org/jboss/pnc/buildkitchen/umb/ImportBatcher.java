@@ -0,0 +1,132 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.umb;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.buildkitchen.PncImporter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups PNC builds to import into batches that are imported together. A batch is imported when it reaches the maximum
+ * size or when its first build waited for the maximum linger time, whichever comes first. The linger timer runs on a
+ * thread of its own, so that batches are handed over to the workers on time even while all of them are importing.
+ */
+@Slf4j
+@ApplicationScoped
+public class ImportBatcher {
+
+    @Inject
+    PncImporter pncImporter;
+
+    @ConfigProperty(name = "build-kitchen.umb.batch.max-size", defaultValue = "50")
+    int maxSize;
+
+    @ConfigProperty(name = "build-kitchen.umb.batch.max-linger", defaultValue = "PT0.5S")
+    Duration maxLinger;
+
+    @ConfigProperty(name = "build-kitchen.umb.batch.workers", defaultValue = "2")
+    int workers;
+
+    private ScheduledExecutorService lingerTimer;
+
+    private ExecutorService executor;
+
+    private List<PendingImport> batch = new ArrayList<>();
+
+    private ScheduledFuture<?> lingerTimeout;
+
+    @PostConstruct
+    void initExecutor() {
+        lingerTimer = Executors.newSingleThreadScheduledExecutor();
+        executor = Executors.newFixedThreadPool(workers);
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        lingerTimer.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Adds the build to the current batch.
+     *
+     * @return stage completed when the batch with the build is imported, exceptionally if the build failed to import
+     */
+    public synchronized CompletionStage<Void> submit(String buildId) {
+        PendingImport pendingImport = new PendingImport(buildId, new CompletableFuture<>());
+        batch.add(pendingImport);
+        if (batch.size() >= maxSize) {
+            flush();
+        } else if (lingerTimeout == null) {
+            lingerTimeout = lingerTimer.schedule(this::flush, maxLinger.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return pendingImport.result();
+    }
+
+    private synchronized void flush() {
+        if (lingerTimeout != null) {
+            lingerTimeout.cancel(false);
+            lingerTimeout = null;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<PendingImport> toImport = batch;
+        batch = new ArrayList<>();
+        executor.execute(() -> importBatch(toImport));
+    }
+
+    private void importBatch(List<PendingImport> toImport) {
+        log.debug("Importing batch of {} PNC builds", toImport.size());
+        Map<String, RuntimeException> failures;
+        try {
+            failures = pncImporter.importBuilds(toImport.stream().map(PendingImport::buildId).toList());
+        } catch (RuntimeException ex) {
+            log.error("Failed to import batch of PNC builds", ex);
+            toImport.forEach(pendingImport -> pendingImport.result().completeExceptionally(ex));
+            return;
+        }
+        for (PendingImport pendingImport : toImport) {
+            RuntimeException failure = failures.get(pendingImport.buildId());
+            if (failure == null) {
+                pendingImport.result().complete(null);
+            } else {
+                pendingImport.result().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private record PendingImport(String buildId, CompletableFuture<Void> result) {
+    }
+}
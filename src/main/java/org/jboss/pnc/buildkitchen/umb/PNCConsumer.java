@@ -19,16 +19,22 @@ package org.jboss.pnc.buildkitchen.umb;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.smallrye.reactive.messaging.amqp.IncomingAmqpMetadata;
 import io.smallrye.reactive.messaging.annotations.Blocking;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.jboss.pnc.buildkitchen.PncImporter;
 import org.jboss.pnc.dto.Build;
 
+import java.time.Duration;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
 @ApplicationScoped
 @Slf4j
@@ -40,9 +46,25 @@ public class PNCConsumer {
     @Inject
     PncImporter pncImporter;
 
+    @Inject
+    ImportBatcher importBatcher;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "build-kitchen.umb.batch.enabled", defaultValue = "false")
+    boolean batchEnabled;
+
     @Incoming("builds")
     @Blocking(ordered = false)
     public CompletionStage<Void> process(Message<String> message) {
+        recordLag(message);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return importBuild(message)
+                .whenComplete((ignored, failure) -> sample.stop(meterRegistry.timer("build-kitchen.umb.processing")));
+    }
+
+    private CompletionStage<Void> importBuild(Message<String> message) {
 
         log.debug("Received new message via the AMQP consumer");
         log.debug("Message content: {}", message.getPayload());
@@ -52,12 +74,45 @@ public class PNCConsumer {
             build = objectMapper.readValue(message.getPayload(), BuildStatusChanged.class).getBuild();
         } catch (JsonProcessingException e) {
             log.error("Unable to deserialize PNC build finished message, this is unexpected", e);
-            return message.nack(e);
+            return nack(message, e);
         }
         log.debug("Message properly deserialized");
 
-        pncImporter.importBuild(build.getId());
+        if (batchEnabled) {
+            return importBatcher.submit(build.getId())
+                    .handle((ignored, failure) -> failure == null ? ack(message) : nack(message, failure))
+                    .thenCompose(Function.identity());
+        }
 
+        try {
+            pncImporter.importBuild(build.getId());
+        } catch (RuntimeException e) {
+            log.error("Failed to import PNC build {}", build.getId(), e);
+            return nack(message, e);
+        }
+
+        return ack(message);
+    }
+
+    /**
+     * Records how long the message waited since it was sent, when the broker provides the creation time.
+     */
+    private void recordLag(Message<String> message) {
+        message.getMetadata(IncomingAmqpMetadata.class)
+                .map(IncomingAmqpMetadata::getCreationTime)
+                .filter(creationTime -> creationTime > 0)
+                .ifPresent(
+                        creationTime -> meterRegistry.timer("build-kitchen.umb.lag")
+                                .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - creationTime))));
+    }
+
+    private CompletionStage<Void> ack(Message<String> message) {
+        meterRegistry.counter("build-kitchen.umb.messages", "outcome", "ack").increment();
         return message.ack();
     }
+
+    private CompletionStage<Void> nack(Message<String> message, Throwable failure) {
+        meterRegistry.counter("build-kitchen.umb.messages", "outcome", "nack").increment();
+        return message.nack(failure);
+    }
 }
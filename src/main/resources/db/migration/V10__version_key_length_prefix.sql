@@ -0,0 +1,41 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Numeric segments of the purl version keys are prefixed with their length instead of padded to 10 digits, see
+-- PurlComponents.versionKey. Keys of ASCII versions are recomputed here the same way, the artifacts with other
+-- versions are reset to be parsed again by PurlBackfill on startup.
+
+UPDATE Artifact a
+SET purlVersionKey = COALESCE(
+        (
+            SELECT string_agg(
+                    CASE
+                        WHEN r.segment[1] ~ '^[0-9]' THEN
+                            lpad(LEAST(length(ltrim(r.segment[1], '0')), 99)::text, 2, '0') || ltrim(r.segment[1], '0')
+                        ELSE lower(r.segment[1])
+                    END,
+                    '.' ORDER BY r.n)
+            FROM regexp_matches(a.purlVersion, '[0-9]+|[A-Za-z]+', 'g') WITH ORDINALITY AS r(segment, n)
+        ),
+        '')
+WHERE a.purlVersion IS NOT NULL AND a.purlVersion ~ '^[ -~]*$';
+
+UPDATE Artifact
+SET purlType = NULL, purlNamespace = NULL, purlName = NULL, purlVersion = NULL, purlVersionKey = NULL,
+    purlQualifiers = NULL
+WHERE purlVersion IS NOT NULL AND purlVersion !~ '^[ -~]*$';
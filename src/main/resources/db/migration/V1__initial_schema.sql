@@ -0,0 +1,111 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Schema as previously generated by Hibernate. Existing databases are baselined at this version and skip it, so it must
+-- stay identical to that schema, anything added since belongs to the later migrations.
+
+CREATE SEQUENCE Artifact_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE Build_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE BuildRecipe_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE BuildTool_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE ScmInfo_SEQ START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE ShadedArtifact_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE Artifact (
+    id bigint NOT NULL,
+    purl varchar(255) NOT NULL,
+    sha256 varchar(255) NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE (purl, sha256)
+);
+
+CREATE TABLE ShadedArtifact (
+    id bigint NOT NULL,
+    artifact_id bigint NOT NULL REFERENCES Artifact,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ShadedArtifact_Artifact (
+    ShadedArtifact_id bigint NOT NULL REFERENCES ShadedArtifact,
+    shadedArtifacts_id bigint NOT NULL REFERENCES Artifact,
+    PRIMARY KEY (ShadedArtifact_id, shadedArtifacts_id)
+);
+
+CREATE TABLE BuildTool (
+    id bigint NOT NULL,
+    identifier varchar(255) NOT NULL,
+    version varchar(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE ScmInfo (
+    id bigint NOT NULL,
+    buildScmUrl varchar(255) NOT NULL,
+    buildCommitId varchar(255) NOT NULL,
+    originScmUrl varchar(255) NOT NULL,
+    originCommitId varchar(255) NOT NULL,
+    originRevision varchar(255),
+    PRIMARY KEY (id),
+    UNIQUE (buildScmUrl, buildCommitId, originScmUrl, originCommitId)
+);
+
+CREATE TABLE BuildRecipe (
+    id bigint NOT NULL,
+    scmInfo_id bigint NOT NULL REFERENCES ScmInfo,
+    buildScript TEXT NOT NULL,
+    memoryRequired bigint NOT NULL,
+    discrepancyWithUpstream TEXT,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE BuildRecipe_BuildTool (
+    BuildRecipe_id bigint NOT NULL REFERENCES BuildRecipe,
+    buildTools_id bigint NOT NULL REFERENCES BuildTool,
+    PRIMARY KEY (BuildRecipe_id, buildTools_id)
+);
+
+CREATE TABLE BuildRecipe_ShadedArtifact (
+    BuildRecipe_id bigint NOT NULL REFERENCES BuildRecipe,
+    shadedDependencies_id bigint NOT NULL UNIQUE REFERENCES ShadedArtifact,
+    PRIMARY KEY (BuildRecipe_id, shadedDependencies_id)
+);
+
+CREATE TABLE Build (
+    id bigint NOT NULL,
+    recipe_id bigint NOT NULL REFERENCES BuildRecipe,
+    generator varchar(255) NOT NULL,
+    buildId varchar(255) NOT NULL,
+    versionGenerated varchar(255),
+    buildTime timestamp(6) with time zone NOT NULL,
+    buildDuration bigint NOT NULL,
+    memory bigint NOT NULL,
+    image varchar(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE Build_Artifact (
+    Build_id bigint NOT NULL REFERENCES Build,
+    builtArtifacts_id bigint NOT NULL REFERENCES Artifact,
+    PRIMARY KEY (Build_id, builtArtifacts_id)
+);
+
+CREATE TABLE Build_buildTools (
+    Build_id bigint NOT NULL REFERENCES Build,
+    buildTools varchar(255) NOT NULL,
+    PRIMARY KEY (Build_id, buildTools)
+);
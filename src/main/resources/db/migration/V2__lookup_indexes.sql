@@ -0,0 +1,35 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Indexes supporting the lookup queries in BuildRecipe and Build.
+
+-- Artifact.purl is served by the leading column of the (purl, sha256) unique index,
+-- the join from the artifact to its builds is not.
+CREATE INDEX build_artifact_artifact_idx ON Build_Artifact (builtArtifacts_id);
+
+CREATE INDEX build_recipe_idx ON Build (recipe_id);
+CREATE INDEX build_build_id_idx ON Build (buildId, generator);
+CREATE INDEX build_version_generated_idx ON Build (versionGenerated);
+
+CREATE INDEX buildrecipe_scminfo_idx ON BuildRecipe (scmInfo_id);
+
+-- ScmInfo.buildScmUrl is served by the leading column of the unique index.
+CREATE INDEX scminfo_origin_scm_url_idx ON ScmInfo (originScmUrl);
+CREATE INDEX scminfo_build_commit_id_idx ON ScmInfo (buildCommitId);
+CREATE INDEX scminfo_origin_commit_id_idx ON ScmInfo (originCommitId);
+CREATE INDEX scminfo_origin_revision_idx ON ScmInfo (originRevision);
@@ -0,0 +1,34 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Denormalized (url, revision) keys of ScmInfo, see ScmKey.
+
+CREATE TABLE ScmKey (
+    url varchar(255) NOT NULL,
+    revision varchar(255) NOT NULL,
+    scmInfo_id bigint NOT NULL REFERENCES ScmInfo,
+    PRIMARY KEY (url, revision, scmInfo_id)
+);
+
+INSERT INTO ScmKey (url, revision, scmInfo_id)
+SELECT u.url, r.revision, scm.id
+FROM ScmInfo scm
+CROSS JOIN LATERAL (VALUES (scm.buildScmUrl), (scm.originScmUrl)) u(url)
+CROSS JOIN LATERAL (VALUES (scm.buildCommitId), (scm.originCommitId), (scm.originRevision)) r(revision)
+WHERE r.revision IS NOT NULL
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,32 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Parsed purl components of Artifact, see PurlComponents. Rows existing before this migration are parsed by
+-- PurlBackfill on startup.
+
+ALTER TABLE Artifact
+    ADD COLUMN purlType varchar(255),
+    ADD COLUMN purlNamespace varchar(255),
+    ADD COLUMN purlName varchar(255),
+    ADD COLUMN purlVersion varchar(255),
+    ADD COLUMN purlVersionKey TEXT COLLATE "C",
+    ADD COLUMN purlQualifiers TEXT;
+
+CREATE INDEX artifact_package_idx ON Artifact (purlType, purlNamespace, purlName, purlVersionKey);
+
+CREATE INDEX artifact_unparsed_idx ON Artifact (id) WHERE purlType IS NULL;
@@ -0,0 +1,23 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Recipes are identified by a hash of their content. Existing recipes are hashed, and duplicates merged, by the
+-- recipe compaction job after startup.
+
+ALTER TABLE BuildRecipe ADD COLUMN contentHash varchar(255);
+CREATE UNIQUE INDEX buildrecipe_content_hash_idx ON BuildRecipe (contentHash);
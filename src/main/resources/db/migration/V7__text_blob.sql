@@ -0,0 +1,51 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Build scripts and discrepancies with upstream are stored once per distinct text, referenced by its SHA-256. The
+-- application stores the texts deflate compressed, the existing ones are moved as they are.
+
+CREATE TABLE TextBlob (
+    hash varchar(255) NOT NULL,
+    content bytea NOT NULL,
+    deflated boolean NOT NULL,
+    PRIMARY KEY (hash)
+);
+
+INSERT INTO TextBlob (hash, content, deflated)
+SELECT encode(sha256(convert_to(t.text, 'UTF8')), 'hex'), convert_to(t.text, 'UTF8'), false
+FROM (
+    SELECT buildScript FROM BuildRecipe
+    UNION
+    SELECT discrepancyWithUpstream FROM BuildRecipe WHERE discrepancyWithUpstream IS NOT NULL
+  ) t(text);
+
+-- the moved texts stay compressed by Postgres, don't compress the ones compressed by the application again
+ALTER TABLE TextBlob ALTER COLUMN content SET STORAGE EXTERNAL;
+
+ALTER TABLE BuildRecipe
+    ADD COLUMN buildScript_hash varchar(255) REFERENCES TextBlob,
+    ADD COLUMN discrepancyWithUpstream_hash varchar(255) REFERENCES TextBlob;
+
+UPDATE BuildRecipe
+SET buildScript_hash = encode(sha256(convert_to(buildScript, 'UTF8')), 'hex'),
+    discrepancyWithUpstream_hash = encode(sha256(convert_to(discrepancyWithUpstream, 'UTF8')), 'hex');
+
+ALTER TABLE BuildRecipe
+    ALTER COLUMN buildScript_hash SET NOT NULL,
+    DROP COLUMN buildScript,
+    DROP COLUMN discrepancyWithUpstream;
@@ -0,0 +1,44 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Build tools are created atomically by an insert skipping existing ones, which needs a unique (identifier, version).
+-- Duplicates created before are merged into the build tool with the lowest id first.
+
+CREATE TEMPORARY TABLE BuildTool_duplicate ON COMMIT DROP AS
+SELECT id, kept_id
+FROM (
+    SELECT id, min(id) OVER (PARTITION BY identifier, version) AS kept_id
+    FROM BuildTool
+  ) bt
+WHERE id <> kept_id;
+
+INSERT INTO BuildRecipe_BuildTool (BuildRecipe_id, buildTools_id)
+SELECT rbt.BuildRecipe_id, d.kept_id
+FROM BuildRecipe_BuildTool rbt
+JOIN BuildTool_duplicate d ON d.id = rbt.buildTools_id
+ON CONFLICT DO NOTHING;
+
+DELETE FROM BuildRecipe_BuildTool rbt
+USING BuildTool_duplicate d
+WHERE d.id = rbt.buildTools_id;
+
+DELETE FROM BuildTool bt
+USING BuildTool_duplicate d
+WHERE d.id = bt.id;
+
+ALTER TABLE BuildTool ADD CONSTRAINT buildtool_identifier_version_key UNIQUE (identifier, version);
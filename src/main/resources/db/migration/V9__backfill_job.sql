@@ -0,0 +1,45 @@
+--
+-- JBoss, Home of Professional Open Source.
+-- Copyright 2023-2024 Red Hat, Inc., and individual contributors
+-- as indicated by the @author tags.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Jobs importing historical PNC builds and the builds they failed to import, see BackfillJob and BackfillFailure.
+
+CREATE SEQUENCE BackfillJob_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE BackfillJob (
+    id bigint NOT NULL,
+    since timestamp(6) with time zone NOT NULL,
+    until timestamp(6) with time zone,
+    query TEXT,
+    state varchar(255) NOT NULL,
+    cursor timestamp(6) with time zone,
+    processed bigint NOT NULL,
+    failed bigint NOT NULL,
+    total bigint NOT NULL,
+    resumedAt timestamp(6) with time zone,
+    processedAtResume bigint NOT NULL,
+    owner varchar(255),
+    leaseExpiry timestamp(6) with time zone,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE BackfillFailure (
+    job_id bigint NOT NULL REFERENCES BackfillJob,
+    buildId varchar(255) NOT NULL,
+    error TEXT NOT NULL,
+    PRIMARY KEY (job_id, buildId)
+);
@@ -16,10 +16,10 @@
 -- limitations under the License.
 --
 
-INSERT INTO Artifact (id, purl)
-VALUES (100, 'pkg:maven/foo.bar/foo@12.0.3.redhat-00001'),
-       (200, 'pkg:maven/foo.bar/bar@12.0.3.redhat-00001'),
-       (300, 'pkg:maven/foo.bar/shaded@12.0.3.redhat-00001');
+INSERT INTO Artifact (id, purl, sha256)
+VALUES (100, 'pkg:maven/foo.bar/foo@12.0.3.redhat-00001', 'a1b2c3'),
+       (200, 'pkg:maven/foo.bar/bar@12.0.3.redhat-00001', 'd4e5f6'),
+       (300, 'pkg:maven/foo.bar/shaded@12.0.3.redhat-00001', 'a7b8c9');
 
 INSERT INTO ShadedArtifact (id, artifact_id)
 VALUES (100, 200);
@@ -34,8 +34,15 @@ VALUES (100, 'JAVA', '11'),
 INSERT INTO ScmInfo (id, buildScmUrl, buildCommitId, originScmUrl, originCommitId, originRevision)
 VALUES (100, 'foo', 'bar', 'baz', 'xen', 'zan');
 
-INSERT INTO BuildRecipe (id, memoryrequired, scminfo_id, buildscript, discrepancywithupstream)
-VALUES (100, 4294967296, 100, 'mvn clean deploy', NULL);
+INSERT INTO ScmKey (url, revision, scminfo_id)
+VALUES ('foo', 'bar', 100), ('foo', 'xen', 100), ('foo', 'zan', 100),
+       ('baz', 'bar', 100), ('baz', 'xen', 100), ('baz', 'zan', 100);
+
+INSERT INTO TextBlob (hash, content, deflated)
+VALUES (encode(sha256('mvn clean deploy'), 'hex'), 'mvn clean deploy', false);
+
+INSERT INTO BuildRecipe (id, memoryrequired, scminfo_id, buildscript_hash, discrepancywithupstream_hash)
+VALUES (100, 4294967296, 100, encode(sha256('mvn clean deploy'), 'hex'), NULL);
 
 INSERT INTO buildrecipe_buildtool (buildrecipe_id, buildtools_id)
 VALUES (100, 100), (100, 200);
@@ -52,3 +59,11 @@ VALUES (100, 100), (100, 200);
 INSERT INTO build_buildtools (build_id, buildtools)
 VALUES (100, 'java-11-openjdk-11.0.20.0.8-1.fc38.x86_64'),
        (100, 'maven-3.6.6-4.fc38.noarch');
+
+-- keep the generated ids clear of the ones above
+SELECT setval('Artifact_SEQ', 1000);
+SELECT setval('Build_SEQ', 1000);
+SELECT setval('BuildRecipe_SEQ', 1000);
+SELECT setval('BuildTool_SEQ', 1000);
+SELECT setval('ScmInfo_SEQ', 1000);
+SELECT setval('ShadedArtifact_SEQ', 1000);
@@ -0,0 +1,235 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.pnc.buildkitchen.api.Backfill;
+import org.jboss.pnc.buildkitchen.api.BackfillFailureDTO;
+import org.jboss.pnc.buildkitchen.api.BackfillRequestDTO;
+import org.jboss.pnc.buildkitchen.api.BackfillStatusDTO;
+import org.jboss.pnc.buildkitchen.backfill.BackfillRunner;
+import org.jboss.pnc.buildkitchen.model.BackfillJob;
+import org.jboss.pnc.buildkitchen.model.BackfillState;
+import org.jboss.pnc.buildkitchen.model.Build;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs backfill jobs against builds listed by the WireMock PNC stub, the runner imports them in batches of two.
+ */
+@QuarkusTest
+@TestHTTPEndpoint(Backfill.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BackfillResourceTest {
+
+    private static final SyntheticPncBuilds.Shape SHAPE = new SyntheticPncBuilds.Shape(2, 1, 0, 42);
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    BackfillRunner backfillRunner;
+
+    @ConfigProperty(name = "quarkus.wiremock.devservices.port")
+    int wiremockPort;
+
+    private SyntheticPncBuilds pncBuilds;
+
+    @BeforeAll
+    void createPncBuilds() throws IOException {
+        pncBuilds = new SyntheticPncBuilds(objectMapper, wiremockPort);
+    }
+
+    @AfterAll
+    void removePncBuilds() {
+        pncBuilds.removeAll();
+    }
+
+    @Test
+    void pausedJobResumesFromCursor() throws InterruptedException {
+        List<String> buildIds = pncBuilds.register("BACKFILL-PAUSE", 6, SHAPE);
+        Instant since = Instant.parse("2023-01-01T00:00:00Z");
+        List<Instant> endTimes = pncBuilds.registerBuildList(buildIds, since);
+
+        // slows down PNC, so that the job can be paused before it finishes
+        setPncDelay(500);
+        BackfillStatusDTO job;
+        try {
+            job = start(since);
+            job = await(job.getId(), j -> j.getProcessed() >= 2);
+            given().when().post("/" + job.getId() + "/pause").then().statusCode(200);
+            awaitStopped(job.getId());
+        } finally {
+            setPncDelay(0);
+        }
+
+        job = get(job.getId());
+        assertEquals(BackfillState.PAUSED, job.getState());
+        assertTrue(job.getProcessed() < buildIds.size(), "the job finished before it was paused");
+        assertEquals(endTimes.get((int) job.getProcessed() - 1), job.getCursor());
+
+        given().when().post("/" + job.getId() + "/resume").then().statusCode(200);
+        job = await(job.getId(), j -> j.getState() != BackfillState.RUNNING);
+
+        assertEquals(BackfillState.FINISHED, job.getState());
+        assertEquals(0, job.getFailed());
+        assertEquals(endTimes.get(endTimes.size() - 1), job.getCursor());
+        // the build at the cursor is read again on resume, but not counted again
+        assertEquals(buildIds.size(), job.getProcessed());
+        assertEquals(
+                Set.copyOf(buildIds),
+                QuarkusTransaction.requiringNew().call(() -> Build.importedPncBuildIds(buildIds)));
+    }
+
+    @Test
+    void failedBuildsAreRecordedAndRetried() throws InterruptedException {
+        List<String> buildIds = pncBuilds.register("BACKFILL-FAIL", 3, SHAPE);
+        Instant since = Instant.parse("2023-02-01T00:00:00Z");
+        String missingBuildId = "BACKFILL-FAIL-LATE-0";
+        pncBuilds.registerBuildList(List.of(buildIds.get(0), missingBuildId, buildIds.get(1), buildIds.get(2)), since);
+
+        BackfillStatusDTO job = start(since);
+        job = await(job.getId(), j -> j.getState() != BackfillState.RUNNING);
+
+        assertEquals(BackfillState.FINISHED, job.getState());
+        assertEquals(4, job.getProcessed());
+        assertEquals(1, job.getFailed());
+        List<BackfillFailureDTO> failures = getFailures(job.getId());
+        assertEquals(1, failures.size());
+        assertEquals(missingBuildId, failures.get(0).getBuildId());
+
+        // the build becomes available in PNC, resuming the job retries it
+        pncBuilds.register("BACKFILL-FAIL-LATE", 1, SHAPE);
+        given().when().post("/" + job.getId() + "/resume").then().statusCode(200);
+        job = await(job.getId(), j -> j.getState() != BackfillState.RUNNING);
+
+        assertEquals(BackfillState.FINISHED, job.getState());
+        assertEquals(4, job.getProcessed());
+        assertEquals(0, job.getFailed());
+        assertEquals(List.of(), getFailures(job.getId()));
+        assertEquals(
+                Set.of(missingBuildId),
+                QuarkusTransaction.requiringNew().call(() -> Build.importedPncBuildIds(List.of(missingBuildId))));
+    }
+
+    @Test
+    void jobLeasedByAnotherInstanceIsNotRun() throws InterruptedException {
+        List<String> buildIds = pncBuilds.register("BACKFILL-LEASE", 2, SHAPE);
+        Instant since = Instant.parse("2023-03-01T00:00:00Z");
+        pncBuilds.registerBuildList(buildIds, since);
+        long jobId = QuarkusTransaction.requiringNew().call(() -> {
+            BackfillJob job = new BackfillJob();
+            job.since = since;
+            job.state = BackfillState.RUNNING;
+            job.owner = "other-instance";
+            job.leaseExpiry = Instant.now().plusSeconds(3600);
+            job.persist();
+            return job.id;
+        });
+
+        assertFalse(backfillRunner.submit(jobId));
+        assertFalse(backfillRunner.isRunning(jobId));
+        assertEquals(0, get(jobId).getProcessed());
+
+        // the other instance is gone and its lease expired
+        QuarkusTransaction.requiringNew()
+                .run(() -> BackfillJob.<BackfillJob> findById(jobId).leaseExpiry = Instant.now());
+        assertTrue(backfillRunner.submit(jobId));
+        BackfillStatusDTO job = await(jobId, j -> j.getState() != BackfillState.RUNNING);
+
+        assertEquals(BackfillState.FINISHED, job.getState());
+        assertEquals(2, job.getProcessed());
+        String owner = QuarkusTransaction.requiringNew().call(() -> BackfillJob.<BackfillJob> findById(jobId).owner);
+        assertNull(owner);
+    }
+
+    private static BackfillStatusDTO start(Instant since) {
+        return given().contentType("application/json")
+                .body(BackfillRequestDTO.builder().since(since).build())
+                .when()
+                .post()
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .as(BackfillStatusDTO.class);
+    }
+
+    private static BackfillStatusDTO get(long id) {
+        return given().when().get("/" + id).then().statusCode(200).extract().body().as(BackfillStatusDTO.class);
+    }
+
+    private static List<BackfillFailureDTO> getFailures(long id) {
+        return List.of(
+                given().when()
+                        .get("/" + id + "/failures")
+                        .then()
+                        .statusCode(200)
+                        .extract()
+                        .body()
+                        .as(BackfillFailureDTO[].class));
+    }
+
+    private static BackfillStatusDTO await(long id, Predicate<BackfillStatusDTO> condition)
+            throws InterruptedException {
+        BackfillStatusDTO job = get(id);
+        for (int i = 0; i < 300 && !condition.test(job); i++) {
+            Thread.sleep(100);
+            job = get(id);
+        }
+        assertTrue(condition.test(job), "backfill job " + id + " did not reach the expected state: " + job);
+        return job;
+    }
+
+    private void awaitStopped(long id) throws InterruptedException {
+        for (int i = 0; i < 300 && backfillRunner.isRunning(id); i++) {
+            Thread.sleep(100);
+        }
+        assertFalse(backfillRunner.isRunning(id), "backfill job " + id + " did not stop");
+    }
+
+    private void setPncDelay(int millis) {
+        given().baseUri("http://localhost")
+                .port(wiremockPort)
+                .contentType("application/json")
+                .body("{\"fixedDelay\":" + millis + "}")
+                .when()
+                .post("/__admin/settings")
+                .then()
+                .statusCode(200);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeneratedVersionTest {
+
+    @Test
+    void sharedVersion() {
+        Optional<String> version = GeneratedVersion.of(
+                List.of(
+                        "pkg:maven/org.glassfish.jaxb/xsom@4.0.4.redhat-00001?classifier=sources&type=jar",
+                        "pkg:maven/org.glassfish.jaxb/jaxb-core@4.0.4.redhat-00001?type=pom",
+                        "pkg:maven/org.glassfish.jaxb/jaxb-core@4.0.4.redhat-00001"));
+
+        assertEquals(Optional.of("4.0.4.redhat-00001"), version);
+    }
+
+    @Test
+    void differentVersions() {
+        GeneratedVersion generatedVersion = new GeneratedVersion();
+        generatedVersion.add("pkg:npm/left-pad@1.3.0");
+        generatedVersion.add("pkg:npm/right-pad@1.3.1");
+
+        assertTrue(generatedVersion.isAmbiguous());
+        generatedVersion.add("pkg:npm/left-pad@1.3.0");
+        assertEquals(Optional.empty(), generatedVersion.get());
+    }
+
+    @Test
+    void purlsWithoutVersionAreSkipped() {
+        GeneratedVersion generatedVersion = new GeneratedVersion();
+        generatedVersion.add("pkg:npm/left-pad");
+        generatedVersion.add(null);
+        generatedVersion.add("not a purl");
+        generatedVersion.add("pkg:npm/%40scope/left-pad@1.3.0#lib");
+        generatedVersion.add("pkg:npm/%40scope/right-pad@?foo=bar");
+
+        assertFalse(generatedVersion.isAmbiguous());
+        assertEquals(Optional.of("1.3.0"), generatedVersion.get());
+    }
+
+    @Test
+    void noVersion() {
+        assertEquals(Optional.empty(), GeneratedVersion.of(List.of("pkg:npm/left-pad")));
+        assertEquals(Optional.empty(), GeneratedVersion.of(List.of()));
+    }
+
+    @Test
+    void parseVersion() {
+        assertEquals("1.0.0+build.1", GeneratedVersion.parseVersion("pkg:npm/left-pad@1.0.0%2Bbuild.1"));
+        assertEquals("1.0", GeneratedVersion.parseVersion("pkg:maven/g/a@1.0?type=jar#sub/path"));
+        assertNull(GeneratedVersion.parseVersion("pkg:npm/%40scope/left-pad"));
+        assertNull(GeneratedVersion.parseVersion("pkg:maven/g/a@1.0/oops"));
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.reactive.messaging.memory.InMemoryConnector;
+import jakarta.enterprise.inject.Any;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.hibernate.SessionFactory;
+import org.jboss.pnc.buildkitchen.model.Build;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports synthetic PNC builds served by the WireMock PNC stub, through the UMB consumer and through
+ * {@code /recipes/pnc-build-by-id}, and writes the throughput, latency, database statements per import and heap usage
+ * of both to a JSON report. Run with {@code mvn test -Dload-test=true -Dtest=IngestionLoadTest}, the test is
+ * configured by the {@code load-test.*} system properties, see {@link Settings#fromSystemProperties()}.
+ * <p>
+ * Each path imports the builds with at most {@code concurrency} imports in flight, so the latency is the import time
+ * under that load, not the time spent in a queue.
+ */
+@QuarkusTest
+@TestProfile(IngestionLoadTest.Profile.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "load-test", matches = "true")
+class IngestionLoadTest {
+
+    private static final long TIMEOUT_MINUTES = 30;
+
+    /**
+     * Enables the UMB consumer with the in-memory connector, and keeps the debug logs, which include the whole
+     * messages, out of the measurement.
+     */
+    public static class Profile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "mp.messaging.incoming.builds.enabled",
+                    "true",
+                    "mp.messaging.incoming.builds.connector",
+                    "smallrye-in-memory",
+                    "build-kitchen.umb.batch.enabled",
+                    String.valueOf(Settings.fromSystemProperties().umbBatch()),
+                    "quarkus.log.category.\"org.jboss.pnc\".level",
+                    "INFO");
+        }
+    }
+
+    /**
+     * @param builds number of measured imports per path
+     * @param warmup number of imports per path before the measurement
+     * @param concurrency maximum number of imports in flight
+     * @param umbBatch whether the UMB consumer imports the builds in batches
+     * @param report file the report is written to
+     */
+    record Settings(
+            int builds,
+            int warmup,
+            int concurrency,
+            boolean umbBatch,
+            SyntheticPncBuilds.Shape shape,
+            String report) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("load-test.builds", 200),
+                    Integer.getInteger("load-test.warmup", 20),
+                    Integer.getInteger("load-test.concurrency", 8),
+                    Boolean.getBoolean("load-test.umb-batch"),
+                    new SyntheticPncBuilds.Shape(
+                            Integer.getInteger("load-test.artifacts", 20),
+                            Integer.getInteger("load-test.tool-sets", 3),
+                            Double.parseDouble(System.getProperty("load-test.scm-repetition", "0.5")),
+                            Long.getLong("load-test.seed", 42)),
+                    System.getProperty("load-test.report", "target/load-test-report.json"));
+        }
+    }
+
+    record Report(Settings settings, List<PathReport> paths) {
+    }
+
+    record PathReport(
+            ImportPath path,
+            int imports,
+            int failures,
+            double durationSeconds,
+            double throughputPerSecond,
+            Latency latencyMillis,
+            double dbStatementsPerImport,
+            Heap heapBytes) {
+    }
+
+    record Latency(double p50, double p99, double max) {
+    }
+
+    /**
+     * @param usedBefore heap used after a GC before the imports
+     * @param peak sum of the peak usages of the heap pools during the imports
+     * @param usedAfter heap used after a GC after the imports
+     */
+    record Heap(long usedBefore, long peak, long usedAfter) {
+    }
+
+    enum ImportPath {
+        UMB,
+        REST
+    }
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    @Any
+    InMemoryConnector connector;
+
+    @ConfigProperty(name = "quarkus.wiremock.devservices.port")
+    int wiremockPort;
+
+    @TestHTTPResource("/recipes/pnc-build-by-id")
+    URL importUrl;
+
+    private final Settings settings = Settings.fromSystemProperties();
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private SyntheticPncBuilds pncBuilds;
+
+    @BeforeAll
+    void createPncBuilds() throws IOException {
+        pncBuilds = new SyntheticPncBuilds(objectMapper, wiremockPort);
+    }
+
+    @AfterAll
+    void removePncBuilds() {
+        pncBuilds.removeAll();
+    }
+
+    @Test
+    void ingest() throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX).toUpperCase(Locale.ROOT);
+        List<PathReport> reports = new ArrayList<>();
+        for (ImportPath path : ImportPath.values()) {
+            String prefix = "LOAD" + run + path;
+            if (settings.warmup() > 0) {
+                importBuilds(path, pncBuilds.register(prefix + "W", settings.warmup(), settings.shape()));
+            }
+            PathReport report = importBuilds(path, pncBuilds.register(prefix, settings.builds(), settings.shape()));
+            System.out.printf(
+                    "%-4s %5d imports: %8.2f/s, p50 %8.2f ms, p99 %8.2f ms, %6.1f statements/import%n",
+                    path,
+                    report.imports(),
+                    report.throughputPerSecond(),
+                    report.latencyMillis().p50(),
+                    report.latencyMillis().p99(),
+                    report.dbStatementsPerImport());
+            reports.add(report);
+        }
+
+        Path reportFile = Path.of(settings.report());
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), new Report(settings, reports));
+
+        for (PathReport report : reports) {
+            assertEquals(0, report.failures(), report.path() + " imports failed");
+        }
+    }
+
+    private PathReport importBuilds(ImportPath path, List<String> buildIds) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(settings.concurrency());
+        CountDownLatch finished = new CountDownLatch(buildIds.size());
+        AtomicInteger failures = new AtomicInteger();
+        long[] latencies = new long[buildIds.size()];
+
+        long usedBefore = usedHeapAfterGc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        sessionFactory.getStatistics().clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < buildIds.size(); i++) {
+            inFlight.acquire();
+            int index = i;
+            long submitted = System.nanoTime();
+            submit(path, buildIds.get(i)).whenComplete((ignored, failure) -> {
+                latencies[index] = System.nanoTime() - submitted;
+                if (failure != null) {
+                    failures.incrementAndGet();
+                }
+                inFlight.release();
+                finished.countDown();
+            });
+        }
+        assertTrue(finished.await(TIMEOUT_MINUTES, TimeUnit.MINUTES), path + " imports did not finish in time");
+        long duration = System.nanoTime() - start;
+        long statements = sessionFactory.getStatistics().getPrepareStatementCount();
+        long peak = ManagementFactory.getMemoryPoolMXBeans()
+                .stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        long usedAfter = usedHeapAfterGc();
+
+        int imported = QuarkusTransaction.requiringNew().call(() -> Build.importedPncBuildIds(buildIds).size());
+        assertEquals(buildIds.size() - failures.get(), imported, path + " acknowledged builds that were not imported");
+
+        Arrays.sort(latencies);
+        return new PathReport(
+                path,
+                buildIds.size(),
+                failures.get(),
+                duration / 1e9,
+                buildIds.size() / (duration / 1e9),
+                new Latency(
+                        percentile(latencies, 0.5),
+                        percentile(latencies, 0.99),
+                        latencies[latencies.length - 1] / 1e6),
+                (double) statements / buildIds.size(),
+                new Heap(usedBefore, peak, usedAfter));
+    }
+
+    private CompletableFuture<Void> submit(ImportPath path, String buildId) {
+        return switch (path) {
+            case UMB -> sendBuildMessage(buildId);
+            case REST -> postBuildId(buildId);
+        };
+    }
+
+    /**
+     * Sends the message PNC sends when the build finishes, completes when the consumer acknowledges it.
+     */
+    private CompletableFuture<Void> sendBuildMessage(String buildId) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(
+                    Map.of("attribute", "state", "oldStatus", "BUILDING", "build", Map.of("id", buildId)));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> processed = new CompletableFuture<>();
+        connector.<Message<String>> source("builds").send(Message.of(payload, () -> {
+            processed.complete(null);
+            return CompletableFuture.completedFuture(null);
+        }, failure -> {
+            processed.completeExceptionally(failure);
+            return CompletableFuture.completedFuture(null);
+        }));
+        return processed;
+    }
+
+    private CompletableFuture<Void> postBuildId(String buildId) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(importUrl.toURI())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(buildId))
+                    .build();
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenAccept(response -> {
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Import of " + buildId + " returned " + response.statusCode());
+            }
+        });
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int rank = (int) Math.ceil(percentile * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.pnc.buildkitchen.api.Lookup;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the bulk purl lookup with the same number of single purl lookups. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=LookupBenchmarkTest}.
+ */
+@QuarkusTest
+@TestHTTPEndpoint(Lookup.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LookupBenchmarkTest {
+
+    private static final int SEEDED = 20_000;
+
+    private static final long FIRST_ID = 20_000_000;
+
+    @Inject
+    LookupCache lookupCache;
+
+    private final SeededData seededData = new SeededData(FIRST_ID);
+
+    @BeforeAll
+    void seed() {
+        List<Long> artifacts = seededData.artifacts(
+                IntStream.rangeClosed(1, SEEDED).mapToObj(g -> "pkg:maven/bench/lookup-" + g + "@1.0").toList());
+        // attach the artifacts to the build from the test data
+        seededData.linkArtifacts(100, artifacts);
+    }
+
+    @AfterAll
+    void deleteSeeded() {
+        seededData.delete();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 100, 2_000, 20_000 })
+    void lookupByPurls(int size) {
+        List<String> purls = IntStream.rangeClosed(1, size).mapToObj(i -> "pkg:maven/bench/lookup-" + i + "@1.0").toList();
+
+        lookupCache.invalidateAll();
+        long start = System.nanoTime();
+        Map<?, ?> recipes = given().contentType("application/json")
+                .body(purls)
+                .when()
+                .post("/by-purls")
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(Map.class);
+        long bulk = System.nanoTime() - start;
+        assertEquals(size, recipes.size());
+
+        lookupCache.invalidateAll();
+        start = System.nanoTime();
+        for (String purl : purls) {
+            given().queryParam("purl", purl).when().get("/by-purl").then().statusCode(200);
+        }
+        long single = System.nanoTime() - start;
+
+        System.out.printf("lookup %6d purls: bulk %10.2f ms, single %10.2f ms%n", size, bulk / 1e6, single / 1e6);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.common.mapper.TypeRef;
+import org.jboss.pnc.buildkitchen.api.ArtifactDTO;
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.BuildToolDTO;
+import org.jboss.pnc.buildkitchen.api.PNCBuild;
+import org.jboss.pnc.buildkitchen.api.ScmInfoDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LookupByPackageTest {
+
+    private static final String PACKAGE = "pkg:maven/io.example.pkg/handler";
+
+    @BeforeAll
+    void submitBuilds() {
+        for (String version : List.of("4.1.9", "4.1.10", "4.1.100")) {
+            PNCBuild build = PNCBuild.builder()
+                    .buildId("PKG-" + version)
+                    .buildDuration(60)
+                    .buildScript("mvn clean deploy")
+                    .buildTime(Instant.now())
+                    .scmInfo(
+                            ScmInfoDTO.builder()
+                                    .buildScmUrl("https://internal.example.com/pkg/handler.git")
+                                    .buildCommitId("build-" + version)
+                                    .originScmUrl("https://github.com/example/handler.git")
+                                    .originCommitId("origin-" + version)
+                                    .originRevision(version)
+                                    .build())
+                    .buildTools(Set.of(BuildToolDTO.builder().identifier("JAVA").version("17").build()))
+                    .memory(2L * 1024 * 1024 * 1024)
+                    .builtArtifacts(Set.of(new ArtifactDTO(PACKAGE + "@" + version, "sha-" + version)))
+                    .build();
+            given().contentType("application/json")
+                    .body(build)
+                    .when()
+                    .post("/recipes/pnc-build")
+                    .then()
+                    .statusCode(200);
+        }
+    }
+
+    @Test
+    void anyVersion() {
+        assertEquals(
+                List.of(PACKAGE + "@4.1.9", PACKAGE + "@4.1.10", PACKAGE + "@4.1.100"),
+                List.copyOf(lookup(Map.of("purl", PACKAGE)).keySet()));
+    }
+
+    @Test
+    void versionRange() {
+        assertEquals(
+                List.of(PACKAGE + "@4.1.10", PACKAGE + "@4.1.100"),
+                List.copyOf(lookup(Map.of("purl", PACKAGE, "minVersion", "4.1.10")).keySet()));
+        assertEquals(
+                List.of(PACKAGE + "@4.1.9", PACKAGE + "@4.1.10"),
+                List.copyOf(lookup(Map.of("purl", PACKAGE, "maxVersion", "4.1.10")).keySet()));
+    }
+
+    @Test
+    void exactVersion() {
+        Map<String, List<BuildRecipeDTO>> recipes = lookup(Map.of("purl", PACKAGE + "@4.1.10"));
+
+        assertEquals(Set.of(PACKAGE + "@4.1.10"), recipes.keySet());
+        assertEquals("4.1.10", recipes.get(PACKAGE + "@4.1.10").get(0).getScmInfo().getOriginRevision());
+    }
+
+    @Test
+    void invalidPurl() {
+        given().queryParam("purl", "not a purl").when().get("/lookup/by-package").then().statusCode(400);
+    }
+
+    private static Map<String, List<BuildRecipeDTO>> lookup(Map<String, String> parameters) {
+        return given().queryParams(parameters)
+                .when()
+                .get("/lookup/by-package")
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(new TypeRef<>() {
+                });
+    }
+}
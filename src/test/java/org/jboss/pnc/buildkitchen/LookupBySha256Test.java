@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.common.mapper.TypeRef;
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.Lookup;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+@TestHTTPEndpoint(Lookup.class)
+class LookupBySha256Test {
+
+    @Test
+    void lookupBySha256() {
+        BuildRecipeDTO[] recipes = given().queryParam("sha256", "A1B2C3")
+                .when()
+                .get("/by-sha256")
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(BuildRecipeDTO[].class);
+
+        assertEquals(1, recipes.length);
+        assertEquals(100L, recipes[0].getId());
+    }
+
+    @Test
+    void lookupBySha256s() {
+        Map<String, List<BuildRecipeDTO>> recipes = given().contentType("application/json")
+                .body(List.of("a1b2c3", "d4e5f6", "ffffff"))
+                .when()
+                .post("/by-sha256s")
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(new TypeRef<>() {
+                });
+
+        assertEquals(List.of("a1b2c3", "d4e5f6", "ffffff"), List.copyOf(recipes.keySet()));
+        assertEquals(100L, recipes.get("a1b2c3").get(0).getId());
+        assertEquals(100L, recipes.get("d4e5f6").get(0).getId());
+        assertEquals(List.of(), recipes.get("ffffff"));
+    }
+}
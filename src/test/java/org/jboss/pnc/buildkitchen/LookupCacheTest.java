@@ -0,0 +1,149 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.jboss.pnc.buildkitchen.api.ArtifactDTO;
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.BuildToolDTO;
+import org.jboss.pnc.buildkitchen.api.PNCBuild;
+import org.jboss.pnc.buildkitchen.api.ScmInfoDTO;
+import org.jboss.pnc.buildkitchen.mapper.BuildRecipeMapper;
+import org.jboss.pnc.buildkitchen.model.BuildRecipe;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+class LookupCacheTest {
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    LookupCache lookupCache;
+
+    @Inject
+    BuildRecipeMapper mapper;
+
+    @Test
+    void repeatedLookupIsServedFromCache() {
+        String purl = "pkg:maven/cache/repeated@" + UUID.randomUUID();
+        lookupByPurl(purl);
+
+        sessionFactory.getStatistics().clear();
+        lookupByPurl(purl);
+
+        assertEquals(0, sessionFactory.getStatistics().getPrepareStatementCount());
+    }
+
+    @Test
+    void submittedBuildInvalidatesItsLookups() {
+        String suffix = UUID.randomUUID().toString();
+        String purl = "pkg:maven/cache/submitted@" + suffix;
+        String url = "https://github.com/cache/" + suffix + ".git";
+        assertEquals(0, lookupByPurl(purl).size());
+        assertEquals(0, lookupByScmRevision(url, "main").size());
+
+        BuildRecipeDTO recipe = submitBuild(suffix, purl, url);
+
+        assertEquals(List.of(recipe.getId()), ids(lookupByPurl(purl)));
+        assertEquals(List.of(recipe.getId()), ids(lookupByScmRevision(url, "main")));
+    }
+
+    @Test
+    void lookupLoadedBeforeCommitIsNotCached() {
+        String suffix = UUID.randomUUID().toString();
+        String purl = "pkg:maven/cache/interleaved@" + suffix;
+
+        List<BuildRecipeDTO> loaded = lookupCache.get(LookupCache.Key.purl(purl), () -> {
+            List<BuildRecipeDTO> beforeCommit = QuarkusTransaction.requiringNew()
+                    .call(() -> BuildRecipe.findByPurl(purl).stream().map(mapper::toResource).toList());
+            // the import commits and invalidates the lookup before the load is cached
+            submitBuild(suffix, purl, "https://github.com/cache/" + suffix + ".git");
+            return beforeCommit;
+        });
+
+        assertEquals(0, loaded.size());
+        assertEquals(1, lookupByPurl(purl).size());
+    }
+
+    private static BuildRecipeDTO submitBuild(String suffix, String purl, String url) {
+        PNCBuild build = PNCBuild.builder()
+                .buildId("CACHE" + suffix)
+                .buildDuration(60)
+                .buildScript("mvn clean deploy")
+                .buildTime(Instant.now())
+                .scmInfo(
+                        ScmInfoDTO.builder()
+                                .buildScmUrl("https://internal.example.com/cache/" + suffix + ".git")
+                                .buildCommitId("0123456789abcdef")
+                                .originScmUrl(url)
+                                .originCommitId("fedcba9876543210")
+                                .originRevision("main")
+                                .build())
+                .buildTools(Set.of(BuildToolDTO.builder().identifier("JAVA").version("17").build()))
+                .memory(2L * 1024 * 1024 * 1024)
+                .builtArtifacts(Set.of(new ArtifactDTO(purl, "0123456789abcdef0123456789abcdef")))
+                .build();
+        return given().contentType("application/json")
+                .body(build)
+                .when()
+                .post("/recipes/pnc-build")
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(BuildRecipeDTO.class);
+    }
+
+    private static List<BuildRecipeDTO> lookupByPurl(String purl) {
+        return List.of(
+                given().queryParam("purl", purl)
+                        .when()
+                        .get("/lookup/by-purl")
+                        .then()
+                        .statusCode(200)
+                        .extract()
+                        .as(BuildRecipeDTO[].class));
+    }
+
+    private static List<BuildRecipeDTO> lookupByScmRevision(String url, String revision) {
+        return List.of(
+                given().queryParam("url", url)
+                        .queryParam("revision", revision)
+                        .when()
+                        .get("/lookup/by-scm-revision")
+                        .then()
+                        .statusCode(200)
+                        .extract()
+                        .as(BuildRecipeDTO[].class));
+    }
+
+    private static List<Long> ids(List<BuildRecipeDTO> recipes) {
+        return recipes.stream().map(BuildRecipeDTO::getId).toList();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
+import org.jboss.pnc.buildkitchen.api.BuildRecipePageDTO;
+import org.jboss.pnc.buildkitchen.api.Lookup;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@QuarkusTest
+@TestHTTPEndpoint(Lookup.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LookupPaginationTest {
+
+    private static final int RECIPES = 25;
+
+    private static final long FIRST_ID = 50_000_000;
+
+    private static final String URL = "https://github.com/paging/paging.git";
+
+    private static final String VERSION = "1.0.0.paging-00001";
+
+    private static final String PURL = "pkg:maven/paging/paging@1.0.0.paging-00001";
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private final SeededData seededData = new SeededData(FIRST_ID);
+
+    @BeforeAll
+    void seed() {
+        seededData.recipes(
+                IntStream.rangeClosed(1, RECIPES)
+                        .mapToObj(
+                                g -> new SeededData.Recipe(
+                                        "internal.example.com/paging-" + g,
+                                        "b-" + g,
+                                        URL,
+                                        "o-" + g,
+                                        "main",
+                                        "mvn clean deploy",
+                                        "PAGING-" + g,
+                                        VERSION,
+                                        List.of(PURL)))
+                        .toList());
+    }
+
+    @AfterAll
+    void deleteSeeded() {
+        seededData.delete();
+    }
+
+    @Test
+    void pageByScmVersion() {
+        List<Long> ids = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        Long after = null;
+        do {
+            var request = given().queryParam("url", URL).queryParam("version", VERSION).queryParam("limit", 10);
+            if (after != null) {
+                request.queryParam("after", after);
+            }
+            BuildRecipePageDTO page = request.when()
+                    .get("/by-scm-version/page")
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .as(BuildRecipePageDTO.class);
+            page.getRecipes().forEach(recipe -> ids.add(recipe.getId()));
+            pageSizes.add(page.getRecipes().size());
+            after = page.getNext();
+        } while (after != null);
+
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        assertEquals(allIds(), ids);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        BuildRecipePageDTO page = given().queryParam("purl", PURL)
+                .queryParam("after", FIRST_ID + RECIPES - 1)
+                .when()
+                .get("/by-purl/page")
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(BuildRecipePageDTO.class);
+
+        assertEquals(1, page.getRecipes().size());
+        assertEquals(2, page.getRecipes().get(0).getBuildTools().size());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void limitIsValidated() {
+        given().queryParam("purl", PURL)
+                .queryParam("limit", Lookup.MAX_LIMIT + 1)
+                .when()
+                .get("/by-purl/page")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void streamByScmRevision() throws IOException {
+        String body = given().queryParam("url", URL)
+                .queryParam("revision", "main")
+                .accept(Lookup.NDJSON)
+                .when()
+                .get("/by-scm-revision/stream")
+                .then()
+                .statusCode(200)
+                .contentType(Lookup.NDJSON)
+                .extract()
+                .asString();
+
+        List<Long> ids = new ArrayList<>();
+        for (String line : body.split("\\n")) {
+            ids.add(objectMapper.readValue(line, BuildRecipeDTO.class).getId());
+        }
+        assertEquals(allIds(), ids);
+    }
+
+    private static List<Long> allIds() {
+        return LongStream.rangeClosed(FIRST_ID + 1, FIRST_ID + RECIPES).boxed().toList();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.specification.RequestSpecification;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The read endpoints must run a constant number of statements, no matter how many recipes they return.
+ */
+@QuarkusTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LookupStatementCountTest {
+
+    private static final int MANY = 50;
+
+    private static final long FIRST_ID = 40_000_000;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    LookupCache lookupCache;
+
+    private final SeededData seededData = new SeededData(FIRST_ID);
+
+    @BeforeAll
+    void seed() {
+        seededData.recipes(Stream.concat(recipes("one", 1), recipes("many", MANY)).toList());
+    }
+
+    @AfterAll
+    void deleteSeeded() {
+        seededData.delete();
+    }
+
+    /**
+     * Recipes with SCM information sharing the origin URL and revision, builds sharing the version and a single
+     * artifact built by all the builds.
+     */
+    private static Stream<SeededData.Recipe> recipes(String group, int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(
+                        g -> new SeededData.Recipe(
+                                "internal.example.com/count-" + group + "-" + g,
+                                "b-" + group + "-" + g,
+                                "https://github.com/count/" + group + ".git",
+                                "o-" + group + "-" + g,
+                                group + "-rev",
+                                "mvn clean deploy",
+                                "COUNT-" + group + "-" + g,
+                                group + "-1.0",
+                                List.of(purl(group))));
+    }
+
+    private static String purl(String group) {
+        return "pkg:maven/count/" + group + "@1.0";
+    }
+
+    @Test
+    void lookupByScmRevision() {
+        assertConstant(
+                group -> given().queryParam("url", "https://github.com/count/" + group + ".git")
+                        .queryParam("revision", group + "-rev"),
+                "/lookup/by-scm-revision");
+    }
+
+    @Test
+    void lookupByScmVersion() {
+        assertConstant(
+                group -> given().queryParam("url", "https://github.com/count/" + group + ".git")
+                        .queryParam("version", group + "-1.0"),
+                "/lookup/by-scm-version");
+    }
+
+    @Test
+    void lookupByPurl() {
+        assertConstant(group -> given().queryParam("purl", purl(group)), "/lookup/by-purl");
+    }
+
+    @Test
+    void lookupByPurls() {
+        long one = countStatements(() -> lookupByPurls(List.of(purl("one"))));
+        long many = countStatements(() -> lookupByPurls(List.of(purl("one"), purl("many"))));
+
+        assertEquals(one, many);
+    }
+
+    @Test
+    void getSpecificRecipe() {
+        long statements = countStatements(
+                () -> given().when().get("/recipes/" + (FIRST_ID + 1)).then().statusCode(200));
+
+        assertEquals(1, statements);
+    }
+
+    private void assertConstant(Function<String, RequestSpecification> request, String path) {
+        long one = countStatements(() -> assertEquals(1, lookup(request.apply("one"), path).size()));
+        long many = countStatements(() -> assertEquals(MANY, lookup(request.apply("many"), path).size()));
+
+        assertEquals(1, one);
+        assertEquals(one, many);
+    }
+
+    private static List<?> lookup(RequestSpecification request, String path) {
+        return request.when().get(path).then().statusCode(200).extract().as(List.class);
+    }
+
+    private static void lookupByPurls(List<String> purls) {
+        given().contentType("application/json").body(purls).when().post("/lookup/by-purls").then().statusCode(200);
+    }
+
+    private long countStatements(Runnable request) {
+        lookupCache.invalidateAll();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        request.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+
+@QuarkusTest
+class MetricsTest {
+
+    @Inject
+    PncImporter pncImporter;
+
+    @Test
+    void lookupsAndPncCallsAreExported() {
+        given().queryParam("purl", "pkg:maven/metrics/none@1.0")
+                .when()
+                .get("/lookup/by-purl")
+                .then()
+                .statusCode(200);
+        pncImporter.fetch("A6IR2VCQCDYAA");
+
+        given().when()
+                .get("/q/metrics")
+                .then()
+                .statusCode(200)
+                .body(containsString("build_kitchen_lookups_seconds_count{class=\"" + LookupResource.class.getName()))
+                .body(containsString("method=\"lookupByPurl\""))
+                .body(containsString("build_kitchen_pnc_requests_seconds_count{call=\"build\""))
+                .body(containsString("agroal_awaiting_count"));
+    }
+}
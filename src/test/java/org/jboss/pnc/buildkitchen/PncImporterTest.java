@@ -17,8 +17,13 @@
  */
 package org.jboss.pnc.buildkitchen;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.pnc.api.constants.BuildGenerator;
 import org.jboss.pnc.buildkitchen.mapper.BuildRecipeMapper;
 import org.jboss.pnc.buildkitchen.model.Build;
@@ -28,9 +33,12 @@ import org.jboss.pnc.buildkitchen.model.ScmInfo;
 import org.jboss.pnc.client.RemoteResourceException;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Set;
 
+import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -43,27 +51,37 @@ class PncImporterTest {
     @Inject
     BuildRecipeMapper mapper;
 
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    TransactionRecorder transactionRecorder;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "quarkus.wiremock.devservices.port")
+    int wiremockPort;
+
     @Test
     void importBuild() throws RemoteResourceException {
         BuildRecipe buildRecipe = pncImporter.importBuild("A6IR2VCQCDYAA");
 
         assertNotNull(buildRecipe);
-        assertEquals("mvn clean deploy", buildRecipe.buildScript);
+        assertEquals("mvn clean deploy", buildRecipe.buildScript.text());
         assertEquals(3_373_159_940L, buildRecipe.memoryRequired);
         ScmInfo scmInfo = buildRecipe.scmInfo;
         assertNotNull(scmInfo);
         assertEquals("abcdef0123456789abcdef0123456789abcdef01", scmInfo.buildCommitId);
         assertEquals("123456789abc123456789abc123465789abc1234", scmInfo.originCommitId);
         assertEquals("4.0.4-RI", scmInfo.originRevision);
-        assertEquals("https://example.com/gerrit/eclipse-ee4j/jaxb-ri.git", scmInfo.buildScmUrl);
-        assertEquals("https://github.com/eclipse-ee4j/jaxb-ri.git", scmInfo.originScmUrl);
+        assertEquals("example.com/gerrit/eclipse-ee4j/jaxb-ri", scmInfo.buildScmUrl);
+        assertEquals("github.com/eclipse-ee4j/jaxb-ri", scmInfo.originScmUrl);
         Set<BuildTool> buildTools = buildRecipe.buildTools;
         assertNotNull(buildTools);
         assertEquals(3, buildTools.size());
-        Set<Build> builds = buildRecipe.builds;
-        assertNotNull(builds);
-        assertEquals(1, builds.size());
-        Build build = builds.iterator().next();
+        Build build = QuarkusTransaction.requiringNew().call(() -> Build.pncBuild("A6IR2VCQCDYAA").orElseThrow());
+        assertEquals(buildRecipe.id, build.recipe.id);
         assertEquals(3_373_159_940L, build.memory);
         assertEquals(Instant.parse("2024-02-13T14:29:32.388Z"), build.buildTime);
         assertEquals(214, build.buildDuration);
@@ -73,4 +91,73 @@ class PncImporterTest {
 
         System.out.println(mapper.toResource(buildRecipe));
     }
-}
\ No newline at end of file
+
+    @Test
+    void importDoesNotHoldTransactionDuringPncCalls() {
+        Duration pncLatency = Duration.ofSeconds(1);
+        deleteImportedBuild("A6IR2VCQCDYAA");
+        setPncLatency(pncLatency);
+        try {
+            transactionRecorder.resetLongest();
+            long start = System.nanoTime();
+            BuildRecipe buildRecipe = pncImporter.importBuild("A6IR2VCQCDYAA");
+            Duration importTime = Duration.ofNanos(System.nanoTime() - start);
+            Duration longestTransaction = transactionRecorder.resetLongest();
+
+            assertNotNull(buildRecipe);
+            // build and its revision are read one after another, built artifacts in parallel
+            assertTrue(importTime.compareTo(pncLatency.multipliedBy(2)) >= 0, "Import took " + importTime);
+            assertTrue(
+                    longestTransaction.compareTo(pncLatency) < 0,
+                    "Transaction was held for " + longestTransaction + " with PNC latency " + pncLatency);
+        } finally {
+            setPncLatency(Duration.ZERO);
+        }
+    }
+
+    @Test
+    void importBuildWithSeveralPagesOfArtifacts() throws IOException {
+        SyntheticPncBuilds pncBuilds = new SyntheticPncBuilds(objectMapper, wiremockPort);
+        String buildId = pncBuilds
+                .register("PAGED" + System.nanoTime(), 1, new SyntheticPncBuilds.Shape(250, 1, 0, 1))
+                .get(0);
+        try {
+            long pageReads = builtArtifactsPageReads();
+            pncImporter.importBuild(buildId);
+
+            // every page read is timed, not just the first one
+            assertEquals(3, builtArtifactsPageReads() - pageReads);
+            QuarkusTransaction.requiringNew().run(() -> {
+                Build build = Build.pncBuild(buildId).orElseThrow();
+                assertEquals(250, build.builtArtifacts.size());
+                assertEquals("1.0.0.redhat-00001", build.versionGenerated);
+            });
+        } finally {
+            pncBuilds.removeAll();
+        }
+    }
+
+    private long builtArtifactsPageReads() {
+        return meterRegistry.find("build-kitchen.pnc.requests")
+                .tag("call", "built-artifacts")
+                .timers()
+                .stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private static void deleteImportedBuild(String buildId) {
+        QuarkusTransaction.requiringNew().run(() -> Build.pncBuild(buildId).ifPresent(Build::delete));
+    }
+
+    private void setPncLatency(Duration latency) {
+        given().baseUri("http://localhost")
+                .port(wiremockPort)
+                .contentType("application/json")
+                .body("{\"fixedDelay\": " + latency.toMillis() + "}")
+                .when()
+                .post("/__admin/settings")
+                .then()
+                .statusCode(200);
+    }
+}
@@ -17,27 +17,39 @@
  */
 package org.jboss.pnc.buildkitchen;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
 import org.jboss.pnc.buildkitchen.api.ArtifactDTO;
 import org.jboss.pnc.buildkitchen.api.BuildRecipeDTO;
 import org.jboss.pnc.buildkitchen.api.BuildToolDTO;
+import org.jboss.pnc.buildkitchen.api.ImportJobDTO;
+import org.jboss.pnc.buildkitchen.api.ImportJobState;
 import org.jboss.pnc.buildkitchen.api.PNCBuild;
 import org.jboss.pnc.buildkitchen.api.Recipes;
 import org.jboss.pnc.buildkitchen.api.ScmInfoDTO;
+import org.jboss.pnc.buildkitchen.model.Build;
 import org.junit.jupiter.api.Test;
 
+import java.net.URL;
 import java.time.Instant;
 import java.util.Set;
 
 import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @QuarkusTest
 @TestHTTPEndpoint(Recipes.class)
 public class RecipesResourceTest {
 
+    @TestHTTPResource("/recipes/import-jobs")
+    URL importJobsUrl;
+
     @Test
     public void testGetSpecific() {
         BuildRecipeDTO recipe = given().when()
@@ -52,6 +64,12 @@ public class RecipesResourceTest {
         assertEquals(recipe.getBuildScript(), "mvn clean deploy");
     }
 
+    @Test
+    public void testGetDiscrepancyWithUpstream() {
+        given().when().get("/100/discrepancy-with-upstream").then().statusCode(204);
+        given().when().get("/999999/discrepancy-with-upstream").then().statusCode(404);
+    }
+
     @Test
     public void testCreateRecipe() {
         BuildRecipeDTO requestObject = BuildRecipeDTO.builder()
@@ -83,6 +101,73 @@ public class RecipesResourceTest {
         assertEquals(recipe.getBuildScript(), requestObject.getBuildScript());
     }
 
+    @Test
+    public void testCreateRecipeWithSameContent() {
+        long first = createRecipe(dedupRecipe("mvn clean deploy -Pdedup")).getId();
+        long second = createRecipe(dedupRecipe("mvn clean deploy -Pdedup")).getId();
+        long changed = createRecipe(dedupRecipe("mvn clean install -Pdedup")).getId();
+
+        assertEquals(first, second);
+        assertNotEquals(first, changed);
+    }
+
+    private static BuildRecipeDTO dedupRecipe(String buildScript) {
+        return BuildRecipeDTO.builder()
+                .scmInfo(
+                        ScmInfoDTO.builder()
+                                .buildScmUrl("https://internal.example.com/project-ncl/build-kitchen.git")
+                                .buildCommitId("2d0e4fbac9d1b6f6c3a7b0e8b5f9d0a1c2e3f4a5")
+                                .originScmUrl("https://github.com/project-ncl/build-kitchen.git")
+                                .originCommitId("2d0e4fbac9d1b6f6c3a7b0e8b5f9d0a1c2e3f4a5")
+                                .originRevision("main")
+                                .build())
+                .buildScript(buildScript)
+                .memoryRequired(4L * 1024 * 1024 * 1024)
+                .buildTools(Set.of(BuildToolDTO.builder().identifier("JAVA").version("17").build()))
+                .build();
+    }
+
+    private static BuildRecipeDTO createRecipe(BuildRecipeDTO recipe) {
+        return given().contentType("application/json")
+                .body(recipe)
+                .when()
+                .post()
+                .then()
+                .statusCode(200)
+                .extract()
+                .body()
+                .as(BuildRecipeDTO.class);
+    }
+
+    @Test
+    public void testSubmitPNCBuildDetectsGeneratedVersion() {
+        PNCBuild requestObject = PNCBuild.builder()
+                .buildId("AAVERSIONDETECT")
+                .buildDuration(60)
+                .buildScript("mvn clean deploy")
+                .buildTime(Instant.now())
+                .scmInfo(
+                        ScmInfoDTO.builder()
+                                .buildScmUrl("https://internal.example.com/project-ncl/version-detect.git")
+                                .buildCommitId("0123456789abcdef")
+                                .originScmUrl("https://github.com/project-ncl/version-detect.git")
+                                .originCommitId("0123456789abcdef")
+                                .originRevision("main")
+                                .build())
+                .buildTools(Set.of(BuildToolDTO.builder().identifier("JAVA").version("17").build()))
+                .builtArtifacts(
+                        Set.of(
+                                new ArtifactDTO("pkg:maven/detect/core@2.0.0.redhat-00002?type=jar", "0123abcd"),
+                                new ArtifactDTO("pkg:maven/detect/core@2.0.0.redhat-00002?type=pom", "4567abcd")))
+                .build();
+
+        given().contentType("application/json").body(requestObject).when().post("/pnc-build").then().statusCode(200);
+
+        String versionGenerated = QuarkusTransaction.requiringNew()
+                .call(() -> Build.pncBuild("AAVERSIONDETECT").orElseThrow().versionGenerated);
+        assertEquals("2.0.0.redhat-00002", versionGenerated);
+    }
+
     @Test
     public void testSubmitPNCBuild() {
         PNCBuild requestObject = PNCBuild.builder()
@@ -127,4 +212,37 @@ public class RecipesResourceTest {
         assertEquals(recipe.getBuildScript(), requestObject.getBuildScript());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSubmitPNCBuildAsync() throws InterruptedException {
+        ExtractableResponse<Response> response = given().contentType("application/json")
+                .body("A6IR2VCQCDYAA")
+                .when()
+                .post("/pnc-build-by-id/async")
+                .then()
+                .statusCode(202)
+                .extract();
+        ImportJobDTO job = response.body().as(ImportJobDTO.class);
+        assertEquals("A6IR2VCQCDYAA", job.getBuildId());
+        assertEquals(importJobsUrl + "/" + job.getId(), response.header("Location"));
+
+        for (int i = 0; i < 100 && !isFinished(job); i++) {
+            Thread.sleep(100);
+            job = given().when()
+                    .get("/import-jobs/" + job.getId())
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .body()
+                    .as(ImportJobDTO.class);
+        }
+
+        assertEquals(ImportJobState.DONE, job.getState());
+        assertNotNull(job.getRecipe());
+        assertEquals("mvn clean deploy", job.getRecipe().getBuildScript());
+    }
+
+    private static boolean isFinished(ImportJobDTO job) {
+        return job.getState() == ImportJobState.DONE || job.getState() == ImportJobState.FAILED;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.hibernate.SessionFactory;
+import org.jboss.pnc.buildkitchen.api.ArtifactDTO;
+import org.jboss.pnc.buildkitchen.api.BuildToolDTO;
+import org.jboss.pnc.buildkitchen.api.PNCBuild;
+import org.jboss.pnc.buildkitchen.api.ScmInfoDTO;
+import org.jboss.pnc.buildkitchen.model.Artifact;
+import org.jboss.pnc.buildkitchen.model.BuildTool;
+import org.jboss.pnc.buildkitchen.model.ScmInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Build tools, SCM information and artifacts never change once stored, so they are served from the second-level cache.
+ */
+@QuarkusTest
+class ReferenceDataCacheTest {
+
+    private static final Pattern REFERENCE_DATA_SELECT = Pattern
+            .compile("(?i)\\bfrom (buildtool|scminfo|artifact)\\b");
+
+    @Inject
+    RecipesResource recipesResource;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Test
+    void repeatedImportsDoNotSelectReferenceData() {
+        String suffix = UUID.randomUUID().toString();
+        recipesResource.submitPNCBuild(build("CACHED1" + suffix, suffix));
+
+        sessionFactory.getStatistics().clear();
+        List<String> statements = StatementCapture
+                .capture(() -> recipesResource.submitPNCBuild(build("CACHED2" + suffix, suffix)));
+
+        assertEquals(
+                List.of(),
+                statements.stream().filter(sql -> REFERENCE_DATA_SELECT.matcher(sql).find()).toList());
+        for (Class<?> entity : List.of(BuildTool.class, ScmInfo.class, Artifact.class)) {
+            assertTrue(
+                    sessionFactory.getStatistics().getDomainDataRegionStatistics(entity.getName()).getHitCount() > 0,
+                    entity.getSimpleName() + " was not served from the cache");
+        }
+    }
+
+    /**
+     * Rebuild of the same sources with the same tools, producing the same artifacts.
+     */
+    private static PNCBuild build(String buildId, String suffix) {
+        return PNCBuild.builder()
+                .buildId(buildId)
+                .buildDuration(60)
+                .buildScript("mvn clean deploy")
+                .buildTime(Instant.now())
+                .scmInfo(
+                        ScmInfoDTO.builder()
+                                .buildScmUrl("https://internal.example.com/cached/" + suffix + ".git")
+                                .buildCommitId("0123456789abcdef")
+                                .originScmUrl("https://github.com/cached/" + suffix + ".git")
+                                .originCommitId("fedcba9876543210")
+                                .originRevision("main")
+                                .build())
+                .buildTools(
+                        Set.of(
+                                BuildToolDTO.builder().identifier("JAVA").version("17").build(),
+                                BuildToolDTO.builder().identifier("MAVEN").version("3.9").build()))
+                .memory(2L * 1024 * 1024 * 1024)
+                .builtArtifacts(
+                        Set.of(
+                                new ArtifactDTO("pkg:maven/cached/core@" + suffix, "0123456789abcdef"),
+                                new ArtifactDTO("pkg:maven/cached/api@" + suffix, "fedcba9876543210")))
+                .build();
+    }
+}
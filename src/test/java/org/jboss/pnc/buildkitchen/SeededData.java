@@ -0,0 +1,307 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.persistence.EntityManager;
+import org.jboss.pnc.buildkitchen.model.ScmInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recipes, builds and artifacts inserted in bulk with native queries, for tests that need more data than the test data
+ * have. The rows of each table get ids from the range starting at the first id of the seed, so that tests seeding
+ * their own data don't collide and {@link #delete()} removes exactly the seeded rows. The recipes get build tools of
+ * their own. Build scripts are content addressed and may be shared with other tests, so they are not deleted.
+ * <p>
+ * The seeded recipes have no content hash, the test profile disables {@code RecipeCompaction} so that they aren't
+ * merged behind the tests' back.
+ */
+public class SeededData {
+
+    /**
+     * Number of ids reserved for a seed in each table.
+     */
+    public static final long RANGE = 10_000_000;
+
+    /**
+     * Recipe with a single build. The SCM URLs are normalized as in {@link ScmInfo}, recipes with the same SCM URLs and
+     * commits share the SCM information.
+     *
+     * @param originRevision null for none
+     * @param versionGenerated null for none
+     * @param builtPurls purls of the artifacts built by the build, builds with the same purl share the artifact
+     */
+    public record Recipe(
+            String buildScmUrl,
+            String buildCommitId,
+            String originScmUrl,
+            String originCommitId,
+            String originRevision,
+            String buildScript,
+            String buildId,
+            String versionGenerated,
+            List<String> builtPurls) {
+    }
+
+    private final long firstId;
+
+    private final Map<List<String>, Long> scmInfoIds = new HashMap<>();
+
+    private final Map<String, Long> artifactIds = new HashMap<>();
+
+    private long recipes;
+
+    private boolean buildTools;
+
+    /**
+     * @param firstId first id of the range, a multiple of {@link #RANGE} distinct for each test class
+     */
+    public SeededData(long firstId) {
+        this.firstId = firstId;
+    }
+
+    /**
+     * Seeds artifacts that no build built, or returns the ones seeded before.
+     *
+     * @return ids of the artifacts in the order of the purls
+     */
+    public List<Long> artifacts(List<String> purls) {
+        QuarkusTransaction.requiringNew().run(() -> insertArtifacts(purls));
+        return purls.stream().map(artifactIds::get).toList();
+    }
+
+    /**
+     * Adds seeded artifacts to the built artifacts of an existing build.
+     */
+    public void linkArtifacts(long buildId, List<Long> artifacts) {
+        QuarkusTransaction.requiringNew()
+                .run(
+                        () -> insertBuildArtifacts(
+                                artifacts.stream().map(artifact -> buildId).toArray(Long[]::new),
+                                artifacts.toArray(Long[]::new)));
+    }
+
+    /**
+     * Seeds the recipes with their builds and built artifacts. The build of a recipe has the id of the recipe.
+     *
+     * @return ids of the recipes in the given order
+     */
+    public List<Long> recipes(List<Recipe> seeded) {
+        List<Long> ids = new ArrayList<>(seeded.size());
+        for (int i = 0; i < seeded.size(); i++) {
+            ids.add(firstId + 1 + recipes + i);
+        }
+        QuarkusTransaction.requiringNew().run(() -> {
+            insertBuildTools();
+            Long[] scmInfos = insertScmInfos(seeded);
+            insertRecipes(ids, seeded, scmInfos);
+            insertBuilds(ids, seeded);
+            insertArtifacts(seeded.stream().flatMap(recipe -> recipe.builtPurls().stream()).toList());
+            List<Long> builds = new ArrayList<>();
+            List<Long> artifacts = new ArrayList<>();
+            for (int i = 0; i < seeded.size(); i++) {
+                for (String purl : seeded.get(i).builtPurls()) {
+                    builds.add(ids.get(i));
+                    artifacts.add(artifactIds.get(purl));
+                }
+            }
+            insertBuildArtifacts(builds.toArray(Long[]::new), artifacts.toArray(Long[]::new));
+        });
+        recipes += seeded.size();
+        return ids;
+    }
+
+    /**
+     * Deletes all the seeded rows, together with the rows referencing them.
+     */
+    public void delete() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            deleteRange("DELETE FROM Build_Artifact WHERE Build_id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM Build_Artifact WHERE builtArtifacts_id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM Build WHERE id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM BuildRecipe_BuildTool WHERE BuildRecipe_id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM BuildRecipe WHERE id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM ScmKey WHERE scmInfo_id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM ScmInfo WHERE id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM Artifact WHERE id BETWEEN :first AND :last");
+            deleteRange("DELETE FROM BuildTool WHERE id BETWEEN :first AND :last");
+        });
+        scmInfoIds.clear();
+        artifactIds.clear();
+        recipes = 0;
+        buildTools = false;
+    }
+
+    private void insertBuildTools() {
+        if (buildTools) {
+            return;
+        }
+        em().createNativeQuery("""
+                INSERT INTO BuildTool (id, identifier, version)
+                VALUES (:first + 1, 'JAVA', 'seed-' || :first), (:first + 2, 'MAVEN', 'seed-' || :first)
+                """).setParameter("first", firstId).executeUpdate();
+        buildTools = true;
+    }
+
+    private Long[] insertScmInfos(List<Recipe> seeded) {
+        Map<List<String>, Long> created = new LinkedHashMap<>();
+        List<String> originRevisions = new ArrayList<>();
+        Long[] ids = new Long[seeded.size()];
+        for (int i = 0; i < seeded.size(); i++) {
+            Recipe recipe = seeded.get(i);
+            List<String> naturalKey = Arrays.asList(
+                    ScmInfo.normalizeUrl(recipe.buildScmUrl()),
+                    recipe.buildCommitId(),
+                    ScmInfo.normalizeUrl(recipe.originScmUrl()),
+                    recipe.originCommitId());
+            Long id = scmInfoIds.get(naturalKey);
+            if (id == null) {
+                id = firstId + 1 + scmInfoIds.size();
+                scmInfoIds.put(naturalKey, id);
+                created.put(naturalKey, id);
+                originRevisions.add(recipe.originRevision());
+            }
+            ids[i] = id;
+        }
+        if (created.isEmpty()) {
+            return ids;
+        }
+        em().createNativeQuery("""
+                INSERT INTO ScmInfo (id, buildScmUrl, buildCommitId, originScmUrl, originCommitId, originRevision)
+                SELECT * FROM unnest(CAST(:ids AS bigint[]), CAST(:buildScmUrls AS text[]),
+                        CAST(:buildCommitIds AS text[]), CAST(:originScmUrls AS text[]),
+                        CAST(:originCommitIds AS text[]), CAST(:originRevisions AS text[]))
+                """)
+                .setParameter("ids", created.values().toArray(Long[]::new))
+                .setParameter("buildScmUrls", column(created.keySet(), 0))
+                .setParameter("buildCommitIds", column(created.keySet(), 1))
+                .setParameter("originScmUrls", column(created.keySet(), 2))
+                .setParameter("originCommitIds", column(created.keySet(), 3))
+                .setParameter("originRevisions", originRevisions.toArray(String[]::new))
+                .executeUpdate();
+        em().createNativeQuery("""
+                INSERT INTO ScmKey (url, revision, scmInfo_id)
+                SELECT u.url, r.revision, scm.id
+                FROM ScmInfo scm
+                CROSS JOIN LATERAL (VALUES (scm.buildScmUrl), (scm.originScmUrl)) u(url)
+                CROSS JOIN LATERAL (VALUES (scm.buildCommitId), (scm.originCommitId), (scm.originRevision)) r(revision)
+                WHERE scm.id = ANY(CAST(:ids AS bigint[])) AND r.revision IS NOT NULL
+                ON CONFLICT DO NOTHING
+                """).setParameter("ids", created.values().toArray(Long[]::new)).executeUpdate();
+        return ids;
+    }
+
+    private void insertRecipes(List<Long> ids, List<Recipe> seeded, Long[] scmInfos) {
+        String[] buildScripts = seeded.stream().map(Recipe::buildScript).toArray(String[]::new);
+        em().createNativeQuery("""
+                INSERT INTO TextBlob (hash, content, deflated)
+                SELECT DISTINCT encode(sha256(s.content), 'hex'), s.content, false
+                FROM unnest(CAST(:buildScripts AS text[])) b(script)
+                CROSS JOIN LATERAL (VALUES (convert_to(b.script, 'UTF8'))) s(content)
+                ON CONFLICT DO NOTHING
+                """).setParameter("buildScripts", buildScripts).executeUpdate();
+        em().createNativeQuery("""
+                INSERT INTO BuildRecipe (id, scmInfo_id, buildScript_hash, memoryRequired)
+                SELECT r.id, r.scmInfo_id, encode(sha256(convert_to(r.script, 'UTF8')), 'hex'), 4294967296
+                FROM unnest(CAST(:ids AS bigint[]), CAST(:scmInfos AS bigint[]), CAST(:buildScripts AS text[]))
+                        r(id, scmInfo_id, script)
+                """)
+                .setParameter("ids", ids.toArray(Long[]::new))
+                .setParameter("scmInfos", scmInfos)
+                .setParameter("buildScripts", buildScripts)
+                .executeUpdate();
+        em().createNativeQuery("""
+                INSERT INTO BuildRecipe_BuildTool (BuildRecipe_id, buildTools_id)
+                SELECT r.id, :first + t.n
+                FROM unnest(CAST(:ids AS bigint[])) r(id), (VALUES (1), (2)) t(n)
+                """).setParameter("ids", ids.toArray(Long[]::new)).setParameter("first", firstId).executeUpdate();
+    }
+
+    private void insertBuilds(List<Long> ids, List<Recipe> seeded) {
+        em().createNativeQuery("""
+                INSERT INTO Build (id, recipe_id, generator, buildId, versionGenerated, buildTime, buildDuration,
+                        memory)
+                SELECT b.id, b.id, 'PNC', b.buildId, b.versionGenerated, now(), 1000, 4294967296
+                FROM unnest(CAST(:ids AS bigint[]), CAST(:buildIds AS text[]), CAST(:versions AS text[]))
+                        b(id, buildId, versionGenerated)
+                """)
+                .setParameter("ids", ids.toArray(Long[]::new))
+                .setParameter("buildIds", seeded.stream().map(Recipe::buildId).toArray(String[]::new))
+                .setParameter("versions", seeded.stream().map(Recipe::versionGenerated).toArray(String[]::new))
+                .executeUpdate();
+    }
+
+    private void insertArtifacts(List<String> purls) {
+        List<Long> ids = new ArrayList<>();
+        List<String> created = new ArrayList<>();
+        for (String purl : purls) {
+            if (!artifactIds.containsKey(purl)) {
+                long id = firstId + 1 + artifactIds.size();
+                artifactIds.put(purl, id);
+                ids.add(id);
+                created.add(purl);
+            }
+        }
+        if (created.isEmpty()) {
+            return;
+        }
+        em().createNativeQuery("""
+                INSERT INTO Artifact (id, purl, sha256)
+                SELECT a.id, a.purl, md5(a.purl)
+                FROM unnest(CAST(:ids AS bigint[]), CAST(:purls AS text[])) a(id, purl)
+                """)
+                .setParameter("ids", ids.toArray(Long[]::new))
+                .setParameter("purls", created.toArray(String[]::new))
+                .executeUpdate();
+    }
+
+    private void insertBuildArtifacts(Long[] builds, Long[] artifacts) {
+        if (builds.length == 0) {
+            return;
+        }
+        em().createNativeQuery("""
+                INSERT INTO Build_Artifact (Build_id, builtArtifacts_id)
+                SELECT * FROM unnest(CAST(:builds AS bigint[]), CAST(:artifacts AS bigint[]))
+                ON CONFLICT DO NOTHING
+                """).setParameter("builds", builds).setParameter("artifacts", artifacts).executeUpdate();
+    }
+
+    private void deleteRange(String sql) {
+        em().createNativeQuery(sql)
+                .setParameter("first", firstId)
+                .setParameter("last", firstId + RANGE - 1)
+                .executeUpdate();
+    }
+
+    private static String[] column(Iterable<List<String>> naturalKeys, int index) {
+        List<String> column = new ArrayList<>();
+        naturalKeys.forEach(naturalKey -> column.add(naturalKey.get(index)));
+        return column.toArray(String[]::new);
+    }
+
+    private static EntityManager em() {
+        return Panache.getEntityManager();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.restassured.specification.RequestSpecification;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Generates PNC builds for load tests and registers them in the WireMock PNC stub. The builds are copies of the
+ * recorded build A6IR2VCQCDYAA from {@code mappings}, with their own artifacts, SCM repositories and build tools.
+ * The list of builds read by backfill is stubbed as well, see {@link #registerBuildList(List, Instant)}.
+ */
+class SyntheticPncBuilds {
+
+    private static final String BUILD_MAPPING = "/mappings/pnc-rest_v2_builds_a6ir2vcqcdyaa"
+            + "-151f9a16-fd5d-4a03-b8e9-eb01e4752856.json";
+
+    private static final String ARTIFACTS_MAPPING = "/mappings/pnc-rest_v2_builds_a6ir2vcqcdyaa_artifacts_built"
+            + "-a751caa6-23c3-4b44-a0f0-da7b79f0c557.json";
+
+    private static final String METADATA_KEY = "load-test";
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final int MAPPINGS_PER_IMPORT = 500;
+
+    /**
+     * Shape of the generated builds.
+     *
+     * @param artifacts number of artifacts built by each build
+     * @param toolSets number of distinct build environments the builds are spread over
+     * @param scmRepetition ratio of builds rebuilding the sources of an earlier build, these share the recipe with the
+     *        earlier build when they also share the build environment
+     * @param seed seed of the random choices, so that runs are repeatable
+     */
+    record Shape(int artifacts, int toolSets, double scmRepetition, long seed) {
+    }
+
+    private final ObjectMapper objectMapper;
+
+    private final int wiremockPort;
+
+    private final ObjectNode buildTemplate;
+
+    private final ObjectNode artifactTemplate;
+
+    SyntheticPncBuilds(ObjectMapper objectMapper, int wiremockPort) throws IOException {
+        this.objectMapper = objectMapper;
+        this.wiremockPort = wiremockPort;
+        buildTemplate = (ObjectNode) readRecordedBody(BUILD_MAPPING);
+        artifactTemplate = (ObjectNode) readRecordedBody(ARTIFACTS_MAPPING).get("content").get(0);
+        // the nested build is not read by the import, no need to repeat it for every artifact
+        artifactTemplate.remove("build");
+    }
+
+    /**
+     * Generates {@code count} builds with ids starting with {@code prefix} and registers them in the PNC stub.
+     *
+     * @return ids of the generated builds
+     */
+    List<String> register(String prefix, int count, Shape shape) {
+        Random random = new Random(shape.seed());
+        List<String> buildIds = new ArrayList<>(count);
+        List<JsonNode> mappings = new ArrayList<>();
+        int scmRepositories = 0;
+        for (int i = 0; i < count; i++) {
+            String buildId = prefix + "-" + i;
+            int scm = scmRepositories > 0 && random.nextDouble() < shape.scmRepetition()
+                    ? random.nextInt(scmRepositories)
+                    : scmRepositories++;
+            int toolSet = random.nextInt(shape.toolSets());
+
+            mappings.add(
+                    mapping("/pnc-rest/v2/builds/" + buildId, null, build(buildId, prefix + "-scm-" + scm, toolSet)));
+            List<JsonNode> artifacts = new ArrayList<>(shape.artifacts());
+            for (int j = 0; j < shape.artifacts(); j++) {
+                artifacts.add(artifact(buildId, j));
+            }
+            int pages = Math.max(1, (artifacts.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+            for (int page = 0; page < pages; page++) {
+                List<JsonNode> content = artifacts
+                        .subList(page * PAGE_SIZE, Math.min(artifacts.size(), (page + 1) * PAGE_SIZE));
+                mappings.add(
+                        mapping(
+                                "/pnc-rest/v2/builds/" + buildId + "/artifacts/built",
+                                page,
+                                page(page, pages, artifacts.size(), content)));
+            }
+            if (mappings.size() >= MAPPINGS_PER_IMPORT) {
+                importMappings(mappings);
+                mappings.clear();
+            }
+            buildIds.add(buildId);
+        }
+        if (!mappings.isEmpty()) {
+            importMappings(mappings);
+        }
+        return buildIds;
+    }
+
+    /**
+     * Registers the list of finished builds that backfill reads, the build at index {@code i} finished {@code i + 1}
+     * seconds after {@code since}. The list is stubbed for the queries of the builds finished at or after
+     * {@code since} and at or after the end time of each build, the end times backfill resumes from. The builds don't
+     * have to be registered, a build that isn't fails to import.
+     *
+     * @return end times of the builds
+     */
+    List<Instant> registerBuildList(List<String> buildIds, Instant since) {
+        List<Instant> endTimes = new ArrayList<>(buildIds.size());
+        List<JsonNode> builds = new ArrayList<>(buildIds.size());
+        for (int i = 0; i < buildIds.size(); i++) {
+            Instant endTime = since.plusSeconds(i + 1);
+            ObjectNode build = buildTemplate.deepCopy();
+            build.put("id", buildIds.get(i));
+            build.put("endTime", endTime.toString());
+            endTimes.add(endTime);
+            builds.add(build);
+        }
+        List<JsonNode> mappings = new ArrayList<>();
+        mappings.add(buildListMapping(since, builds));
+        for (int i = 0; i < builds.size(); i++) {
+            mappings.add(buildListMapping(endTimes.get(i), builds.subList(i, builds.size())));
+        }
+        importMappings(mappings);
+        return endTimes;
+    }
+
+    /**
+     * Removes all the generated builds from the PNC stub.
+     */
+    void removeAll() {
+        ObjectNode pattern = objectMapper.createObjectNode().put("matchesJsonPath", "$." + METADATA_KEY);
+        admin().body(pattern.toString()).when().post("/__admin/mappings/remove-by-metadata").then().statusCode(200);
+    }
+
+    private ObjectNode build(String buildId, String scm, int toolSet) {
+        ObjectNode build = buildTemplate.deepCopy();
+        build.put("id", buildId);
+        build.put("buildContentId", "build-" + buildId);
+        build.put("scmUrl", "https://example.com/gerrit/load-test/" + scm + ".git");
+        build.put("scmRevision", sha256(scm + "-internal").substring(0, 40));
+        build.put("scmBuildConfigRevision", sha256(scm + "-upstream").substring(0, 40));
+        ((ObjectNode) build.get("scmRepository")).put("externalUrl", "https://github.com/load-test/" + scm + ".git");
+        ObjectNode attributes = ((ObjectNode) build.get("environment")).putObject("attributes");
+        attributes.put("JDK", String.valueOf(11 + toolSet));
+        attributes.put("MAVEN", "3.9." + toolSet);
+        attributes.put("OS", "Linux");
+        return build;
+    }
+
+    private ObjectNode artifact(String buildId, int index) {
+        String module = buildId.toLowerCase(Locale.ROOT) + "-module-" + index;
+        String version = "1.0.0.redhat-00001";
+        ObjectNode artifact = artifactTemplate.deepCopy();
+        artifact.put("id", buildId + "-" + index);
+        artifact.put("identifier", "org.example.load:" + module + ":jar:" + version);
+        artifact.put("purl", "pkg:maven/org.example.load/" + module + "@" + version + "?type=jar");
+        artifact.put("sha256", sha256(module));
+        artifact.put("filename", module + "-" + version + ".jar");
+        return artifact;
+    }
+
+    private ObjectNode buildListMapping(Instant finishedSince, List<JsonNode> builds) {
+        ObjectNode mapping = mapping("/pnc-rest/v2/builds", 0, page(0, 1, builds.size(), builds));
+        ((ObjectNode) mapping.get("request").get("queryParameters")).putObject("q")
+                .put("contains", "endTime=ge=" + finishedSince);
+        return mapping;
+    }
+
+    private ObjectNode page(int page, int pages, int total, List<JsonNode> content) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("pageIndex", page);
+        body.put("pageSize", PAGE_SIZE);
+        body.put("totalPages", pages);
+        body.put("totalHits", total);
+        ArrayNode contentNode = body.putArray("content");
+        content.forEach(contentNode::add);
+        return body;
+    }
+
+    /**
+     * Stub of a GET request, of the given page when {@code page} is set.
+     */
+    private ObjectNode mapping(String path, Integer page, JsonNode body) {
+        ObjectNode mapping = objectMapper.createObjectNode();
+        ObjectNode request = mapping.putObject("request");
+        request.put("method", "GET");
+        if (page == null) {
+            request.put("url", path);
+        } else {
+            request.put("urlPath", path);
+            request.putObject("queryParameters").putObject("pageIndex").put("equalTo", page.toString());
+        }
+        ObjectNode response = mapping.putObject("response");
+        response.put("status", 200);
+        response.putObject("headers").put("content-type", "application/json");
+        response.put("body", body.toString());
+        mapping.putObject("metadata").put(METADATA_KEY, true);
+        return mapping;
+    }
+
+    private void importMappings(List<JsonNode> mappings) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putArray("mappings").addAll(mappings);
+        body.putObject("importOptions").put("duplicatePolicy", "OVERWRITE").put("deleteAllNotInImport", false);
+        admin().body(body.toString()).when().post("/__admin/mappings/import").then().statusCode(200);
+    }
+
+    private RequestSpecification admin() {
+        return given().baseUri("http://localhost").port(wiremockPort).contentType("application/json");
+    }
+
+    private JsonNode readRecordedBody(String mapping) throws IOException {
+        try (InputStream stream = SyntheticPncBuilds.class.getResourceAsStream(mapping)) {
+            if (stream == null) {
+                throw new IOException("Missing recorded PNC response " + mapping);
+            }
+            return objectMapper.readTree(objectMapper.readTree(stream).get("response").get("body").asText());
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Destroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.transaction.TransactionScoped;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how long the transactions (and so the pooled database connections) are held.
+ */
+@ApplicationScoped
+public class TransactionRecorder {
+
+    private final ThreadLocal<Long> startedAt = new ThreadLocal<>();
+
+    private final AtomicLong longest = new AtomicLong();
+
+    void started(@Observes @Initialized(TransactionScoped.class) Object event) {
+        startedAt.set(System.nanoTime());
+    }
+
+    void finished(@Observes @Destroyed(TransactionScoped.class) Object event) {
+        Long start = startedAt.get();
+        if (start != null) {
+            longest.accumulateAndGet(System.nanoTime() - start, Math::max);
+            startedAt.remove();
+        }
+    }
+
+    /**
+     * Returns duration of the longest transaction since the last call.
+     */
+    public Duration resetLongest() {
+        return Duration.ofNanos(longest.getAndSet(0));
+    }
+}
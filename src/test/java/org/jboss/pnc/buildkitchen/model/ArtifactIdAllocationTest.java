@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import org.jboss.pnc.buildkitchen.api.PurlSha;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Artifacts inserted in bulk take their ids from blocks of the pooled sequence, not a block per artifact.
+ */
+@QuarkusTest
+class ArtifactIdAllocationTest {
+
+    @Test
+    void bulkInsertUsesWholeSequenceBlocks() {
+        Set<PurlSha> purls = new HashSet<>();
+        String suffix = UUID.randomUUID().toString();
+        for (int i = 0; i < 120; i++) {
+            purls.add(new PurlSha("pkg:maven/org.example/ids-" + i + "@" + suffix, suffix));
+        }
+
+        long before = nextSequenceValue();
+        List<Long> ids = QuarkusTransaction.requiringNew()
+                .call(() -> Artifact.getOrCreate(purls).values().stream().map(a -> a.id).sorted().toList());
+        long after = nextSequenceValue();
+
+        assertEquals(120, new HashSet<>(ids).size());
+        // three blocks of 50 for the artifacts, one more for the second probe
+        assertEquals(before + 4 * 50, after);
+        assertEquals(before + 1, ids.get(0));
+        assertEquals(before + 120, ids.get(ids.size() - 1));
+    }
+
+    private static long nextSequenceValue() {
+        return QuarkusTransaction.requiringNew()
+                .call(() -> ((Number) Artifact.getEntityManager()
+                        .createNativeQuery("SELECT nextval('Artifact_SEQ')")
+                        .getSingleResult()).longValue());
+    }
+}
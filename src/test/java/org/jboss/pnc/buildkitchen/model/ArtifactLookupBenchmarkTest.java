@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import org.jboss.pnc.buildkitchen.SeededData;
+import org.jboss.pnc.buildkitchen.api.PurlSha;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares {@link Artifact#findByPurls(Set)} with the original query with one OR-ed condition per artifact. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=ArtifactLookupBenchmarkTest}.
+ */
+@QuarkusTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ArtifactLookupBenchmarkTest {
+
+    private static final int SEEDED = 50_000;
+
+    private static final long FIRST_ID = 10_000_000;
+
+    private static final int ROUNDS = 5;
+
+    private final SeededData seededData = new SeededData(FIRST_ID);
+
+    @BeforeAll
+    void seed() {
+        seededData.artifacts(
+                IntStream.rangeClosed(1, SEEDED).mapToObj(g -> "pkg:maven/bench/artifact-" + g + "@1.0").toList());
+    }
+
+    @AfterAll
+    void deleteSeeded() {
+        seededData.delete();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10, 1_000, 50_000 })
+    void findByPurls(int size) {
+        Set<PurlSha> purls = QuarkusTransaction.requiringNew()
+                .call(
+                        () -> Artifact.<Artifact> find("id > ?1 AND id <= ?2", FIRST_ID, FIRST_ID + size)
+                                .stream()
+                                .map(Artifact::getPurlSha)
+                                .collect(Collectors.toSet()));
+
+        long unnest = measure(() -> assertEquals(size, Artifact.findByPurls(purls).size()));
+        System.out.printf("findByPurls unnest   %6d artifacts: %8.2f ms%n", size, unnest / 1e6);
+        try {
+            long orChained = measure(() -> assertEquals(size, findByPurlsOrChained(purls).size()));
+            System.out.printf("findByPurls OR-chain %6d artifacts: %8.2f ms%n", size, orChained / 1e6);
+        } catch (RuntimeException ex) {
+            System.out.printf("findByPurls OR-chain %6d artifacts: failed (%s)%n", size, ex.getMessage());
+        }
+    }
+
+    private static long measure(Runnable lookup) {
+        QuarkusTransaction.requiringNew().run(lookup); // warm-up
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            QuarkusTransaction.requiringNew().run(lookup);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    /**
+     * The original implementation of {@link Artifact#findByPurls(Set)}.
+     */
+    private static Map<PurlSha, Artifact> findByPurlsOrChained(Set<PurlSha> purls) {
+        List<PurlSha> purlShas = new ArrayList<>(purls);
+        StringBuilder query = new StringBuilder("FROM Artifact a WHERE ");
+        Map<String, Object> params = new HashMap<>();
+        for (int i = 0; i < purlShas.size(); i++) {
+            if (i > 0) {
+                query.append(" OR ");
+            }
+            query.append("(a.purl = :purl").append(i).append(" AND a.sha256 = :sha").append(i).append(")");
+            params.put("purl" + i, purlShas.get(i).purl());
+            params.put("sha" + i, purlShas.get(i).sha256());
+        }
+        return Artifact.<Artifact> find(query.toString(), params)
+                .stream()
+                .collect(Collectors.toMap(Artifact::getPurlSha, Function.identity()));
+    }
+}
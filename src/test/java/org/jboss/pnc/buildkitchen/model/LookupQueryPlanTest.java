@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.hibernate.orm.panache.Panache;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.persistence.EntityManager;
+import org.jboss.pnc.buildkitchen.SeededData;
+import org.jboss.pnc.buildkitchen.StatementCapture;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that the lookup queries are served by indexes. The SQL generated by Hibernate is captured and explained as a
+ * generic prepared statement against a dataset large enough for the planner to prefer indexes.
+ */
+@QuarkusTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LookupQueryPlanTest {
+
+    private static final int RECIPES = 20_000;
+
+    private static final int ARTIFACTS_PER_BUILD = 10;
+
+    private static final long FIRST_ID = 30_000_000;
+
+    /**
+     * Sequential scan of anything but the few build tools and build scripts, which are fetched together with the
+     * recipes.
+     */
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (?!buildtool |textblob )");
+
+    private final SeededData seededData = new SeededData(FIRST_ID);
+
+    @BeforeAll
+    void seed() {
+        seededData.recipes(
+                IntStream.rangeClosed(1, RECIPES)
+                        .mapToObj(
+                                g -> new SeededData.Recipe(
+                                        "https://internal.example.com/plan-" + g + ".git",
+                                        md5("b" + g),
+                                        "https://github.com/plan/plan-" + g + ".git",
+                                        md5("o" + g),
+                                        "v" + g,
+                                        "mvn clean deploy",
+                                        "PLAN" + g,
+                                        g + ".0.0.redhat-00001",
+                                        IntStream.range((g - 1) * ARTIFACTS_PER_BUILD, g * ARTIFACTS_PER_BUILD)
+                                                .mapToObj(a -> "pkg:maven/plan/plan-" + (a + 1) + "@1.0")
+                                                .toList()))
+                        .toList());
+        QuarkusTransaction.requiringNew().run(() -> Panache.getEntityManager().createNativeQuery("ANALYZE").executeUpdate());
+    }
+
+    @AfterAll
+    void deleteSeeded() {
+        seededData.delete();
+    }
+
+    @Test
+    void lookupByScmRevisionUsesIndexes() {
+        assertIndexed(() -> BuildRecipe.findByScmInfo("https://github.com/plan/plan-1.git", "v1"));
+    }
+
+    @Test
+    void lookupByScmVersionUsesIndexes() {
+        assertIndexed(() -> BuildRecipe.findByScmUrlAndVersion("https://github.com/plan/plan-1.git", "1.0.0.redhat-00001"));
+    }
+
+    @Test
+    void lookupByPurlUsesIndexes() {
+        assertIndexed(() -> BuildRecipe.findByPurl("pkg:maven/plan/plan-1@1.0"));
+    }
+
+    @Test
+    void lookupByPurlsUsesIndexes() {
+        assertIndexed(() -> BuildRecipe.findByPurls(List.of("pkg:maven/plan/plan-1@1.0", "pkg:maven/plan/plan-2@1.0")));
+    }
+
+    @Test
+    void lookupBySha256UsesIndexes() {
+        assertIndexed(() -> BuildRecipe.bySha256(md5("1")).list());
+    }
+
+    @Test
+    void lookupBySha256sUsesIndexes() {
+        assertIndexed(() -> BuildRecipe.findBySha256s(List.of(md5("1"), md5("2"))));
+    }
+
+    private static String md5(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(value.getBytes()));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void assertIndexed(Runnable lookup) {
+        List<String> statements = QuarkusTransaction.requiringNew().call(() -> StatementCapture.capture(lookup));
+        assertEquals(1, statements.size(), () -> "Expected a single statement, got " + statements);
+
+        String plan = QuarkusTransaction.requiringNew().call(() -> explain(statements.get(0)));
+        assertFalse(SEQ_SCAN.matcher(plan).find(), () -> "Sequential scan in the plan:\n" + plan);
+    }
+
+    /**
+     * Explains the statement as a generic plan, which is what a prepared statement ends up with once it is reused, so
+     * the parameter values don't matter.
+     */
+    @SuppressWarnings("unchecked")
+    private static String explain(String sql) {
+        EntityManager em = Panache.getEntityManager();
+        StringBuilder numbered = new StringBuilder();
+        int parameters = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++parameters);
+            } else {
+                numbered.append(c);
+            }
+        }
+        String arguments = parameters == 0 ? ""
+                : "(" + String.join(", ", Collections.nCopies(parameters, "'x'")) + ")";
+
+        em.createNativeQuery("SET LOCAL plan_cache_mode = force_generic_plan").executeUpdate();
+        em.createNativeQuery("PREPARE lookup_plan AS " + numbered).executeUpdate();
+        try {
+            List<String> lines = em.createNativeQuery("EXPLAIN EXECUTE lookup_plan" + arguments).getResultList();
+            return lines.stream().collect(Collectors.joining("\n"));
+        } finally {
+            em.createNativeQuery("DEALLOCATE lookup_plan").executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PurlComponentsTest {
+
+    @Test
+    void parseMavenPurl() {
+        PurlComponents components = PurlComponents
+                .parse("pkg:maven/io.netty/netty-handler@4.1.100.Final-redhat-00001?type=jar&classifier=sources");
+
+        assertEquals("maven", components.type());
+        assertEquals("io.netty", components.namespace());
+        assertEquals("netty-handler", components.name());
+        assertEquals("4.1.100.Final-redhat-00001", components.version());
+        assertEquals("014.011.03100.final.redhat.011", components.versionKey());
+        assertEquals("classifier=sources&type=jar", components.qualifiers());
+    }
+
+    @Test
+    void parsePurlWithoutNamespaceAndVersion() {
+        PurlComponents components = PurlComponents.parse("pkg:npm/left-pad");
+
+        assertEquals("npm", components.type());
+        assertEquals("", components.namespace());
+        assertEquals("left-pad", components.name());
+        assertNull(components.version());
+        assertNull(components.qualifiers());
+    }
+
+    @Test
+    void parseInvalidPurl() {
+        assertSame(PurlComponents.UNPARSEABLE, PurlComponents.parse("not a purl"));
+    }
+
+    @Test
+    void versionKeysSortNumerically() {
+        List<String> versions = List.of(
+                "4.1.9",
+                "4.1.10",
+                "4.1.100",
+                "4.1.100.Final",
+                "4.2",
+                "10.0",
+                "9999999999",
+                "20240213142957",
+                "99999999999999999999");
+
+        List<String> sorted = versions.stream()
+                .sorted((a, b) -> PurlComponents.versionKey(a).compareTo(PurlComponents.versionKey(b)))
+                .collect(Collectors.toList());
+
+        assertEquals(versions, sorted);
+    }
+
+    @Test
+    void versionKeysIgnoreLeadingZeros() {
+        assertEquals(PurlComponents.versionKey("1.0.7"), PurlComponents.versionKey("1.00.007"));
+        assertEquals("00", PurlComponents.versionKey("000"));
+    }
+
+    @Test
+    void versionKeysUseAsciiSegmentsOnly() {
+        assertEquals("011.00.final", PurlComponents.versionKey("1.0-final\u0663"));
+        assertEquals("011.00.beta", PurlComponents.versionKey("1.0-\u00e9beta"));
+
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            assertEquals("011.info", PurlComponents.versionKey("1.INFO"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import org.jboss.pnc.buildkitchen.SeededData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@QuarkusTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RecipeCompactionTest {
+
+    private static final long FIRST_ID = 60_000_000;
+
+    private final SeededData seededData = new SeededData(FIRST_ID);
+
+    @AfterAll
+    void deleteSeeded() {
+        seededData.delete();
+    }
+
+    @Test
+    void duplicateRecipesAreMerged() {
+        // the first two recipes have the same content
+        seededData.recipes(
+                IntStream.rangeClosed(1, 3)
+                        .mapToObj(
+                                g -> new SeededData.Recipe(
+                                        "https://internal.example.com/compact.git",
+                                        "b",
+                                        "https://github.com/compact/compact.git",
+                                        "o",
+                                        "v1",
+                                        g < 3 ? "mvn clean deploy" : "mvn deploy",
+                                        "COMPACT" + g,
+                                        null,
+                                        List.of()))
+                        .toList());
+
+        BuildRecipe.Compaction compaction = QuarkusTransaction.requiringNew()
+                .call(() -> BuildRecipe.compact(List.of(FIRST_ID + 1, FIRST_ID + 2, FIRST_ID + 3)));
+
+        assertEquals(3, compaction.processed());
+        assertEquals(1, compaction.merged());
+        assertEquals(List.of("COMPACT2"), compaction.movedBuilds().stream().map(build -> build.buildId).toList());
+        QuarkusTransaction.requiringNew().run(() -> {
+            BuildRecipe survivor = BuildRecipe.findById(FIRST_ID + 1);
+            assertEquals(
+                    BuildRecipe.contentHash(
+                            survivor.scmInfo,
+                            survivor.buildScript.text(),
+                            survivor.buildTools,
+                            survivor.memoryRequired),
+                    survivor.contentHash);
+            assertNull(BuildRecipe.findById(FIRST_ID + 2));
+            assertNotNull(BuildRecipe.<BuildRecipe> findById(FIRST_ID + 3).contentHash);
+            assertEquals(survivor, Build.pncBuild("COMPACT2").orElseThrow().recipe);
+            assertEquals(2, survivor.builds.size());
+        });
+    }
+}
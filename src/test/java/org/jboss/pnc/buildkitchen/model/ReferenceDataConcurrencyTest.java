@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Concurrent get-or-create of the same reference data must neither fail nor create duplicates. Reference data are
+ * created in the transaction of the caller, so they are gone when it rolls back.
+ */
+@QuarkusTest
+class ReferenceDataConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    void concurrentBuildToolUpserts() throws Exception {
+        String identifier = "TOOL-" + UUID.randomUUID();
+
+        List<Long> ids = runConcurrently(() -> BuildTool.upsert(identifier, "1.0"));
+
+        assertEquals(1, new HashSet<>(ids).size());
+        assertEquals(1, BuildTool.count("identifier", identifier));
+    }
+
+    @Test
+    void concurrentScmInfoUpserts() throws Exception {
+        String url = "https://example.com/" + UUID.randomUUID() + ".git";
+
+        List<Long> ids = runConcurrently(() -> ScmInfo.upsert(new ScmInfo(url, "abc", url, "def", "main")));
+
+        assertEquals(1, new HashSet<>(ids).size());
+        assertEquals(1, ScmInfo.count("buildScmUrl", ScmInfo.normalizeUrl(url)));
+    }
+
+    @Test
+    void concurrentImportsShareReferenceData() throws Exception {
+        String url = "https://example.com/" + UUID.randomUUID() + ".git";
+        String identifier = "TOOL-" + UUID.randomUUID();
+
+        List<Long> ids = runConcurrently(() -> QuarkusTransaction.requiringNew().call(() -> {
+            ScmInfo scmInfo = ScmInfo.getOrCreate(url, "abc", url, "def", "main");
+            BuildTool buildTool = BuildTool.getOrCreate(identifier, "1.0");
+            return BuildRecipe.getOrCreate(scmInfo, "mvn clean deploy", Set.of(buildTool), 1024).id;
+        }));
+
+        assertEquals(1, new HashSet<>(ids).size());
+        assertEquals(1, BuildTool.count("identifier", identifier));
+        assertEquals(1, ScmInfo.count("buildScmUrl", ScmInfo.normalizeUrl(url)));
+        assertEquals(1, BuildRecipe.count("scmInfo.buildScmUrl", ScmInfo.normalizeUrl(url)));
+    }
+
+    @Test
+    void referenceDataOfRolledBackTransactionIsCreatedAgain() {
+        String identifier = "TOOL-" + UUID.randomUUID();
+
+        assertThrows(IllegalStateException.class, () -> QuarkusTransaction.requiringNew().run(() -> {
+            BuildTool.getOrCreate(identifier, "1.0");
+            throw new IllegalStateException("rollback");
+        }));
+        assertEquals(0, BuildTool.count("identifier", identifier));
+
+        BuildTool buildTool = QuarkusTransaction.requiringNew().call(() -> BuildTool.getOrCreate(identifier, "1.0"));
+
+        assertNotNull(buildTool);
+        assertEquals(1, BuildTool.count("identifier", identifier));
+    }
+
+    /**
+     * Runs the task from several threads at once, failing when any of the runs fails.
+     */
+    private static List<Long> runConcurrently(Callable<Long> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Long> results = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@QuarkusTest
+class ScmKeyTest {
+
+    @Test
+    void upsertCreatesKeysForEveryUrlAndRevision() {
+        String url = "https://example.com/" + UUID.randomUUID() + ".git";
+        String originUrl = "https://github.com/" + UUID.randomUUID() + ".git";
+
+        Long id = ScmInfo.upsert(new ScmInfo(url, "abc", originUrl, "def", "main"));
+        Long again = ScmInfo.upsert(new ScmInfo(url, "abc", originUrl, "def", "main"));
+
+        assertEquals(id, again);
+        assertEquals(6L, QuarkusTransaction.requiringNew().call(() -> ScmKey.count("scmInfo.id", id)));
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "foo,bar", "foo,xen", "foo,zan", "baz,bar", "baz,xen", "baz,zan" })
+    void findByAnyUrlAndRevision(String url, String revision) {
+        List<BuildRecipe> recipes = QuarkusTransaction.requiringNew()
+                .call(() -> BuildRecipe.findByScmInfo(url, revision));
+
+        assertEquals(1, recipes.size());
+        assertEquals(100L, recipes.get(0).id);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.model;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class TextBlobTest {
+
+    @Test
+    void textIsStoredCompressedOncePerContent() {
+        String diff = "--- a/foo.jar\n+++ b/foo.jar\n-org/foo/Bar.class\n".repeat(10_000);
+
+        String hash = QuarkusTransaction.requiringNew().call(() -> TextBlob.store(diff));
+        String again = QuarkusTransaction.requiringNew().call(() -> TextBlob.store(diff));
+
+        assertEquals(hash, again);
+        QuarkusTransaction.requiringNew().run(() -> {
+            TextBlob blob = TextBlob.findById(hash);
+            assertTrue(blob.deflated);
+            assertTrue(blob.content.length < diff.length() / 10, "Stored " + blob.content.length + " bytes");
+            assertEquals(diff, blob.text());
+        });
+    }
+
+    @Test
+    void migratedTextIsReadAsIs() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            BuildRecipe recipe = BuildRecipe.findById(100L);
+            assertEquals("mvn clean deploy", recipe.buildScript.text());
+        });
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2023-2024 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.pnc.buildkitchen.umb;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.jboss.pnc.buildkitchen.model.Build;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+class ImportBatcherTest {
+
+    @Inject
+    ImportBatcher importBatcher;
+
+    @Test
+    void failedBuildDoesNotFailTheBatch() throws Exception {
+        CompletableFuture<Void> first = importBatcher.submit("A6IR2VCQCDYAA").toCompletableFuture();
+        CompletableFuture<Void> duplicate = importBatcher.submit("A6IR2VCQCDYAA").toCompletableFuture();
+        CompletableFuture<Void> missing = importBatcher.submit("MISSINGBUILD").toCompletableFuture();
+
+        CompletableFuture.allOf(first, duplicate, missing).handle((v, ex) -> null).get(30, TimeUnit.SECONDS);
+
+        assertFalse(first.isCompletedExceptionally());
+        assertFalse(duplicate.isCompletedExceptionally());
+        assertTrue(missing.isCompletedExceptionally());
+        assertEquals(1, Build.count("buildId", "A6IR2VCQCDYAA"));
+    }
+}